@@ -0,0 +1,157 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.Random;
+
+/**
+ * One simulated annealing chain over a giant tour. The chain owns its tour, its RNG and its temperature and only
+ * reads the distance matrix, so several chains can run on the same matrix in parallel.
+ * The energy is either the bare tour time (O(1) move deltas) or, when capacity-aware, the optimal split cost.
+ * This is the only annealing loop: the single-start algorithms run one chain through search(...), the parallel
+ * algorithm drives several chains with run(...).
+ */
+public class AnnealingChain {
+
+    // Iterations between two checks of the solve budget in search(...)
+    private static final int BUDGET_CHECK_INTERVAL = 256;
+
+    private final DistanceMatrix matrix;
+    private final long vehicleCapacity;
+    private final TourNeighborhood neighborhood;
+    private final Split split;
+    private final Random random;
+    private final int[] tour;
+    private final int[] bestTour;
+
+    private double temperature;
+    private double currentEnergy;
+    private double bestEnergy;
+
+    /**
+     * @param initialTour giant tour of matrix positions to start from, position 0 holding the depot; it is copied
+     * @param random      the chain's own RNG
+     */
+    public AnnealingChain(DistanceMatrix matrix, long vehicleCapacity, boolean capacityAware, int[] initialTour, Random random) {
+        this.matrix = matrix;
+        this.vehicleCapacity = vehicleCapacity;
+        this.random = random;
+        this.tour = initialTour.clone();
+        this.bestTour = tour.clone();
+        this.neighborhood = new TourNeighborhood(matrix, tour);
+        this.split = capacityAware ? new Split(matrix, vehicleCapacity) : null;
+        this.currentEnergy = energy();
+        this.bestEnergy = currentEnergy;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    public boolean isCold() {
+        return temperature <= 1 || tour.length <= 2;
+    }
+
+    /**
+     * Single-start search under a solve context. Anneals from the initial temperature; when the context has a budget,
+     * the chain is re-annealed from its best tour every time it has cooled down, until the budget is used up.
+     * Every new best tour is offered to the context.
+     */
+    public void search(SolveContext context, double initialTemperature, double coolingRate) {
+        double offeredEnergy = bestEnergy;
+        context.offerTour(matrix, bestTour, vehicleCapacity, bestEnergy);
+        while (true) {
+            setTemperature(initialTemperature);
+            while (!isCold() && !context.shouldStop()) {
+                context.addIterations(run(BUDGET_CHECK_INTERVAL, coolingRate));
+                if (bestEnergy < offeredEnergy) {
+                    offeredEnergy = bestEnergy;
+                    context.offerTour(matrix, bestTour, vehicleCapacity, bestEnergy);
+                }
+            }
+            if (!context.hasBudget() || context.shouldStop() || tour.length <= 2) {
+                return;
+            }
+            restartFrom(bestTour, bestEnergy);
+        }
+    }
+
+    /**
+     * Runs at most the given number of iterations, stopping early once the chain has cooled down.
+     *
+     * @return the number of iterations that were run
+     */
+    public int run(int maxIterations, double coolingRate) {
+        int iterations = 0;
+        while (iterations < maxIterations && !isCold()) {
+            double neighborEnergy;
+            if (split != null) {
+                neighborhood.propose(random);
+                neighborhood.apply();
+                neighborEnergy = split.cost(tour);
+            } else {
+                neighborEnergy = currentEnergy + neighborhood.propose(random);
+            }
+
+            if (neighborEnergy < currentEnergy || Math.exp((currentEnergy - neighborEnergy) / temperature) > random.nextDouble()) {
+                if (split == null) {
+                    neighborhood.apply();
+                }
+                currentEnergy = neighborEnergy;
+            } else if (split != null) {
+                neighborhood.undo();
+            }
+
+            if (currentEnergy < bestEnergy) {
+                System.arraycopy(tour, 0, bestTour, 0, tour.length);
+                bestEnergy = currentEnergy;
+            }
+
+            temperature *= 1 - coolingRate;
+            iterations++;
+        }
+        return iterations;
+    }
+
+    // Continues the search from another tour, e.g. the best one found by any chain
+    public void restartFrom(int[] startTour, double energy) {
+        System.arraycopy(startTour, 0, tour, 0, tour.length);
+        neighborhood.invalidate();
+        currentEnergy = energy;
+        if (energy < bestEnergy) {
+            System.arraycopy(startTour, 0, bestTour, 0, tour.length);
+            bestEnergy = energy;
+        }
+    }
+
+    public double getCurrentEnergy() {
+        return currentEnergy;
+    }
+
+    public double getBestEnergy() {
+        return bestEnergy;
+    }
+
+    public int[] getBestTour() {
+        return bestTour;
+    }
+
+    private double energy() {
+        return split != null ? split.cost(tour) : neighborhood.totalTime();
+    }
+
+    // Position 0 holds the depot, the rest of the addresses follow in a shuffled order
+    public static int[] shuffledTour(int size, Random random) {
+        int[] tour = new int[size];
+        for (int i = 0; i < size; i++) {
+            tour[i] = i;
+        }
+        for (int i = size - 1; i > 1; i--) {
+            int j = 1 + random.nextInt(i);
+            int temp = tour[i];
+            tour[i] = tour[j];
+            tour[j] = temp;
+        }
+        return tour;
+    }
+}
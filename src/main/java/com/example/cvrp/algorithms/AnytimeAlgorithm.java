@@ -0,0 +1,16 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.List;
+
+/**
+ * An algorithm that can be stopped at any time and still return a valid route.
+ */
+public interface AnytimeAlgorithm extends RoutingAlgorithm {
+
+    // Searches until the context's budget is used up, it is cancelled, or, without a budget, the search is done.
+    // Every new best solution is offered to the context, the best one is returned
+    List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity, SolveContext context);
+}
@@ -0,0 +1,174 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+/**
+ * Clarke-Wright merging that keeps every route within the vehicle capacity, so each merged route is driven as
+ * exactly one trip and no split is needed afterwards. Loads are the residual demands of Split: a customer whose
+ * demand exceeds the capacity first gets dedicated full-truck trips. Only positive savings are merged.
+ * <p>
+ * PARALLEL walks the sorted savings once and merges any two routes whose endpoints and loads allow it, reversing
+ * one of them where that makes the two customers neighbours.
+ * SEQUENTIAL grows one route at a time from the best remaining saving, extending it at its head or tail with
+ * the best unrouted customer that still fits, and closes it once nothing fits.
+ */
+public class CapacitatedSavings {
+
+    public enum Strategy {
+        PARALLEL,
+        SEQUENTIAL
+    }
+
+    private final DistanceMatrix matrix;
+    private final Split split;
+    private final long vehicleCapacity;
+    private final long[] demands;
+
+    public CapacitatedSavings(DistanceMatrix matrix, long vehicleCapacity) {
+        this.matrix = matrix;
+        this.split = new Split(matrix, vehicleCapacity);
+        this.vehicleCapacity = vehicleCapacity;
+        this.demands = new long[matrix.size()];
+        for (int i = 1; i < demands.length; i++) {
+            demands[i] = split.getResidualDemand(i);
+        }
+    }
+
+    // Savings must be sorted from largest to smallest, as produced by SavingsList
+    public RoutePlan solve(long[] savings, Strategy strategy) {
+        RouteIndex routes = new RouteIndex(matrix, demands, vehicleCapacity);
+        if (strategy == Strategy.SEQUENTIAL) {
+            mergeSequential(savings, routes);
+        } else {
+            mergeParallel(savings, routes);
+        }
+        return toPlan(routes);
+    }
+
+    private void mergeParallel(long[] savings, RouteIndex routes) {
+        int size = matrix.size();
+        for (long saving : savings) {
+            if (!(SavingsList.value(saving) > 0)) {
+                break;
+            }
+            int a = SavingsList.first(saving, size);
+            int b = SavingsList.second(saving, size);
+            if (demands[a] == 0 || demands[b] == 0) {
+                continue;
+            }
+            routes.joinEnds(a, b);
+        }
+    }
+
+    private void mergeSequential(long[] savings, RouteIndex routes) {
+        int size = matrix.size();
+        int count = positiveCount(savings);
+
+        // Per-customer adjacency lists over the positive savings, each list stays sorted from largest to smallest
+        int[] start = new int[size + 1];
+        for (int i = 0; i < count; i++) {
+            start[SavingsList.first(savings[i], size) + 1]++;
+            start[SavingsList.second(savings[i], size) + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            start[node + 1] += start[node];
+        }
+        long[] adjacent = new long[start[size]];
+        int[] cursor = start.clone();
+        for (int i = 0; i < count; i++) {
+            adjacent[cursor[SavingsList.first(savings[i], size)]++] = savings[i];
+            adjacent[cursor[SavingsList.second(savings[i], size)]++] = savings[i];
+        }
+        System.arraycopy(start, 0, cursor, 0, size);
+
+        boolean[] routed = new boolean[size];
+        for (int i = 0; i < count; i++) {
+            int a = SavingsList.first(savings[i], size);
+            int b = SavingsList.second(savings[i], size);
+            if (!isFree(a, routed) || !isFree(b, routed) || !routes.join(a, b)) {
+                continue;
+            }
+            routed[a] = true;
+            routed[b] = true;
+
+            // Extend the new route until no free customer fits at either end
+            int head = a;
+            int tail = b;
+            while (true) {
+                long headSaving = nextCandidate(head, adjacent, start, cursor, routes, routed, true);
+                long tailSaving = nextCandidate(tail, adjacent, start, cursor, routes, routed, false);
+                if (headSaving == Long.MAX_VALUE && tailSaving == Long.MAX_VALUE) {
+                    break;
+                }
+                // Packed savings sort ascending by descending value, so the smaller one is the larger saving
+                if (headSaving <= tailSaving) {
+                    int customer = other(headSaving, head, size);
+                    routes.join(customer, head);
+                    routed[customer] = true;
+                    head = customer;
+                } else {
+                    int customer = other(tailSaving, tail, size);
+                    routes.join(tail, customer);
+                    routed[customer] = true;
+                    tail = customer;
+                }
+            }
+        }
+    }
+
+    /**
+     * Best saving between the route endpoint and a free customer that fits on the route, or Long.MAX_VALUE if
+     * there is none. Entries that can no longer be used are skipped for good: a customer only leaves the free
+     * pool, and the endpoint's route only gets heavier while the endpoint is still in use.
+     */
+    private long nextCandidate(int endpoint, long[] adjacent, int[] start, int[] cursor, RouteIndex routes,
+                               boolean[] routed, boolean atHead) {
+        int size = matrix.size();
+        while (cursor[endpoint] < start[endpoint + 1]) {
+            long saving = adjacent[cursor[endpoint]];
+            int customer = other(saving, endpoint, size);
+            if (isFree(customer, routed) && (atHead ? routes.canJoin(customer, endpoint) : routes.canJoin(endpoint, customer))) {
+                return saving;
+            }
+            cursor[endpoint]++;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private boolean isFree(int customer, boolean[] routed) {
+        return !routed[customer] && demands[customer] > 0;
+    }
+
+    private static int other(long saving, int node, int size) {
+        int first = SavingsList.first(saving, size);
+        return first == node ? SavingsList.second(saving, size) : first;
+    }
+
+    private static int positiveCount(long[] savings) {
+        int count = 0;
+        while (count < savings.length && SavingsList.value(savings[count]) > 0) {
+            count++;
+        }
+        return count;
+    }
+
+    // Every route becomes one trip, after the dedicated full-truck trips of its oversized customers
+    private RoutePlan toPlan(RouteIndex routes) {
+        RoutePlan plan = new RoutePlan();
+        for (int[] route : routes.routes()) {
+            for (int customer : route) {
+                for (long trip = 0; trip < split.getFullTrips(customer); trip++) {
+                    plan.addTrip(new int[]{customer}, new long[]{vehicleCapacity});
+                }
+            }
+            if (routes.load(route[0]) > 0) {
+                long[] units = new long[route.length];
+                for (int k = 0; k < route.length; k++) {
+                    units[k] = demands[route[k]];
+                }
+                plan.addTrip(route, units);
+            }
+        }
+        return plan;
+    }
+}
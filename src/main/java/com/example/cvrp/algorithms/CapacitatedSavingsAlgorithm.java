@@ -0,0 +1,61 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+import com.example.cvrp.service.CostProvider;
+
+import java.util.List;
+
+public class CapacitatedSavingsAlgorithm implements RoutingAlgorithm {
+
+    private final CostProvider costProvider;
+    private final CapacitatedSavings.Strategy strategy;
+    private final int granularNeighbors;
+    private final int granularMinSize;
+
+    public CapacitatedSavingsAlgorithm(CostProvider costProvider, CapacitatedSavings.Strategy strategy, int granularNeighbors, int granularMinSize) {
+        this.costProvider = costProvider;
+        this.strategy = strategy;
+        this.granularNeighbors = granularNeighbors;
+        this.granularMinSize = granularMinSize;
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(Address depot, List<Address> addresses, long vehicleCapacity) {
+        DistanceMatrix matrix = buildDistanceMatrix(depot, addresses);
+        return calculateRoute(matrix, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(List<Address> addresses, Long vehicleCapacity) {
+        System.out.println("Capacitated Savings Algorithm (" + strategy + ")");
+        Address depot = addresses.get(0);
+        return calculateRoute(depot, addresses, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity) {
+        // Calculate savings for all pairs of addresses (or only between near neighbours on large inputs), sorted from largest to smallest
+        long[] savings = SavingsList.candidates(matrix, granularNeighbors, granularMinSize);
+
+        // Merge routes without exceeding the vehicle capacity, every route is driven as one trip
+        RoutePlan plan = new CapacitatedSavings(matrix, vehicleCapacity).solve(savings, strategy);
+        List<RouteLeg> routeLegs = plan.toRouteLegs(matrix);
+
+        System.out.println("Final Route:");
+        for (RouteLeg leg : routeLegs) {
+            System.out.println("From ID: " + leg.getOriginId() + " To ID: " + leg.getDestinationId() +
+                    " - Distance: " + leg.getDistance() + "m, Time: " + leg.getTime() + "s, Capacity Used: " + leg.getVehicleCapacity() + " units");
+        }
+        return routeLegs;
+    }
+
+    @Override
+    public DistanceMatrix buildDistanceMatrix(Address depot, List<Address> addresses) {
+        DistanceMatrix matrix = new DistanceMatrix(depot, addresses);
+        int requestCount = costProvider.fillDistanceMatrix(matrix);
+        System.out.println("Cost requests count in Capacitated Savings: " + requestCount);
+        return matrix;
+    }
+}
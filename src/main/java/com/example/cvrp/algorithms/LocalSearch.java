@@ -0,0 +1,388 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Deterministic first-improvement local search over the trips of a RoutePlan. For every customer u and each
+ * of its nearest neighbours v it tries to
+ * <ul>
+ *     <li>relocate u, or a segment of up to three stops starting at u (Or-opt), next to v, within or between trips,</li>
+ *     <li>exchange u and v between two trips,</li>
+ *     <li>2-opt: create the edge u-v by reversing the part of the trip between them,</li>
+ *     <li>2-opt*: create the edge u-v by swapping the tails of two trips.</li>
+ * </ul>
+ * Only moves that keep every trip within the vehicle capacity are applied. Don't-look bits keep a customer out
+ * of the work queue until an edge next to it changes, so a pass stays close to linear in the number of stops.
+ * Travel times may be asymmetric, so 2-opt also prices the reversed edges of the segment it turns around.
+ * Entries that are unknown or failed (Double.MAX_VALUE) are never priced, moves that need them are skipped;
+ * this lets the search run on a matrix that was only filled for the edges around the current route.
+ * Customers served by more than one trip (split deliveries) never leave the trips that serve them: they are not
+ * moved themselves, and relocate and 2-opt* do not carry them along in a segment or tail.
+ */
+public class LocalSearch {
+
+    public static final int DEFAULT_NEIGHBORS = 10;
+
+    // Smallest gain a move must bring, so rounding noise cannot make the search cycle
+    private static final double MIN_GAIN = 1e-9;
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    private final DistanceMatrix matrix;
+    private final long vehicleCapacity;
+    private final int[][] neighbors;
+
+    // Trips as depot, stops..., depot with the units delivered at every position
+    private final List<int[]> tours = new ArrayList<>();
+    private final List<long[]> loads = new ArrayList<>();
+    private long[] tripLoad;
+    private int[] tripOf;
+    private int[] positionOf;
+    private boolean[] fixed;
+
+    private final Deque<Integer> queue = new ArrayDeque<>();
+    private boolean[] queued;
+
+    public LocalSearch(DistanceMatrix matrix, long vehicleCapacity, int neighbors) {
+        this.matrix = matrix;
+        this.vehicleCapacity = vehicleCapacity;
+        this.neighbors = NeighborLists.build(matrix, neighbors);
+    }
+
+    /**
+     * Improves the plan in place until no move helps any more. Trips that end up empty are removed.
+     *
+     * @return the number of improving moves that were applied
+     */
+    public int improve(RoutePlan plan) {
+        load(plan);
+        for (int node = 1; node < matrix.size(); node++) {
+            activate(node);
+        }
+
+        int moves = 0;
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            queued[u] = false;
+            if (!fixed[u] && improveNode(u)) {
+                moves++;
+            }
+        }
+
+        store(plan);
+        return moves;
+    }
+
+    private boolean improveNode(int u) {
+        for (int v : neighbors[u]) {
+            if (fixed[v]) {
+                continue;
+            }
+            if (relocate(u, v) || twoOpt(u, v) || (tripOf[u] != tripOf[v] && (exchange(u, v) || twoOptStar(u, v)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Moves tours[r][i..i+length-1] to right after v or right before v
+    private boolean relocate(int u, int v) {
+        int r = tripOf[u];
+        int s = tripOf[v];
+        int[] tour = tours.get(r);
+        int i = positionOf[u];
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH && i + length - 1 <= tour.length - 2; length++) {
+            int last = tour[i + length - 1];
+            if (fixed[last]) {
+                break; // Segments never carry a split delivery along
+            }
+            if (r == s && positionOf[v] >= i && positionOf[v] <= i + length - 1) {
+                break;
+            }
+            long segmentLoad = 0;
+            for (int k = i; k < i + length; k++) {
+                segmentLoad += loads.get(r)[k];
+            }
+            if (r != s && tripLoad[s] + segmentLoad > vehicleCapacity) {
+                break;
+            }
+
+            double removed = cost(tour[i - 1], u) + cost(last, tour[i + length]) - cost(tour[i - 1], tour[i + length]);
+            int[] target = tours.get(s);
+            int j = positionOf[v];
+            // After v: between target[j] and target[j + 1], before v: between target[j - 1] and target[j]
+            for (int after = j; after >= j - 1; after--) {
+                if (r == s && after >= i - 1 && after <= i + length - 1) {
+                    continue;
+                }
+                double delta = cost(target[after], u) + cost(last, target[after + 1]) - cost(target[after], target[after + 1]) - removed;
+                if (delta < -MIN_GAIN) {
+                    moveSegment(r, i, length, s, after);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Swaps u and v between two trips
+    private boolean exchange(int u, int v) {
+        int r = tripOf[u];
+        int s = tripOf[v];
+        int i = positionOf[u];
+        int j = positionOf[v];
+        long unitsU = loads.get(r)[i];
+        long unitsV = loads.get(s)[j];
+        if (tripLoad[r] - unitsU + unitsV > vehicleCapacity || tripLoad[s] - unitsV + unitsU > vehicleCapacity) {
+            return false;
+        }
+        int[] tourR = tours.get(r);
+        int[] tourS = tours.get(s);
+        double delta = cost(tourR[i - 1], v) + cost(v, tourR[i + 1]) + cost(tourS[j - 1], u) + cost(u, tourS[j + 1])
+                - cost(tourR[i - 1], u) - cost(u, tourR[i + 1]) - cost(tourS[j - 1], v) - cost(v, tourS[j + 1]);
+        if (!(delta < -MIN_GAIN)) {
+            return false;
+        }
+        activateAround(r, i);
+        activateAround(s, j);
+        tourR[i] = v;
+        tourS[j] = u;
+        loads.get(r)[i] = unitsV;
+        loads.get(s)[j] = unitsU;
+        reindex(r);
+        reindex(s);
+        return true;
+    }
+
+    // Within one trip: reverse the stops after the earlier of u, v up to the later one, so that the two become adjacent
+    private boolean twoOpt(int u, int v) {
+        int r = tripOf[u];
+        if (tripOf[v] != r) {
+            return false;
+        }
+        int[] tour = tours.get(r);
+        int a = Math.min(positionOf[u], positionOf[v]);
+        int b = Math.max(positionOf[u], positionOf[v]);
+        if (b == a + 1) {
+            return false;
+        }
+        double innerDelta = 0.0; // Reversed minus forward time of the edges inside tour[a+1..b]
+        for (int k = a + 1; k < b; k++) {
+            innerDelta += cost(tour[k + 1], tour[k]) - cost(tour[k], tour[k + 1]);
+        }
+        double delta = cost(tour[a], tour[b]) + cost(tour[a + 1], tour[b + 1])
+                - cost(tour[a], tour[a + 1]) - cost(tour[b], tour[b + 1]) + innerDelta;
+        if (!(delta < -MIN_GAIN)) {
+            return false;
+        }
+        activateAround(r, a);
+        activateAround(r, b);
+        reverse(tour, loads.get(r), a + 1, b);
+        reindex(r);
+        return true;
+    }
+
+    // Between two trips: u's trip continues with v and the rest of v's trip, v's old predecessor takes u's old tail
+    private boolean twoOptStar(int u, int v) {
+        int r = tripOf[u];
+        int s = tripOf[v];
+        int i = positionOf[u];
+        int j = positionOf[v];
+        int[] tourR = tours.get(r);
+        int[] tourS = tours.get(s);
+
+        if (containsFixed(tourR, i + 1) || containsFixed(tourS, j)) {
+            return false; // Tails never carry a split delivery along
+        }
+        long headR = prefixLoad(r, i);     // Depot..u
+        long headS = prefixLoad(s, j - 1); // Depot..pred(v)
+        if (headR + (tripLoad[s] - headS) > vehicleCapacity || headS + (tripLoad[r] - headR) > vehicleCapacity) {
+            return false;
+        }
+        double delta = cost(u, v) + cost(tourS[j - 1], tourR[i + 1]) - cost(u, tourR[i + 1]) - cost(tourS[j - 1], v);
+        if (!(delta < -MIN_GAIN)) {
+            return false;
+        }
+        activateAround(r, i);
+        activateAround(s, j);
+
+        long[] loadR = loads.get(r);
+        long[] loadS = loads.get(s);
+        int[] newR = concat(tourR, 0, i + 1, tourS, j, tourS.length);
+        long[] newLoadR = concat(loadR, 0, i + 1, loadS, j, loadS.length);
+        int[] newS = concat(tourS, 0, j, tourR, i + 1, tourR.length);
+        long[] newLoadS = concat(loadS, 0, j, loadR, i + 1, loadR.length);
+        tours.set(r, newR);
+        loads.set(r, newLoadR);
+        tours.set(s, newS);
+        loads.set(s, newLoadS);
+        reindex(r);
+        reindex(s);
+        return true;
+    }
+
+    // Moves tours[r][i..i+length-1] to just after position after of trip s
+    private void moveSegment(int r, int i, int length, int s, int after) {
+        activateAround(r, i);
+        activateAround(r, i + length - 1);
+        activateAround(s, after);
+        activateAround(s, after + 1);
+
+        int[] tour = tours.get(r);
+        long[] load = loads.get(r);
+        if (r == s) {
+            if (after < i) {
+                // Rotate tour[after+1..i+length-1] right by length
+                reverse(tour, load, after + 1, i - 1);
+                reverse(tour, load, i, i + length - 1);
+                reverse(tour, load, after + 1, i + length - 1);
+            } else {
+                // Rotate tour[i..after] left by length
+                reverse(tour, load, i, i + length - 1);
+                reverse(tour, load, i + length, after);
+                reverse(tour, load, i, after);
+            }
+            reindex(r);
+            return;
+        }
+
+        int[] target = tours.get(s);
+        long[] targetLoad = loads.get(s);
+        int[] segment = Arrays.copyOfRange(tour, i, i + length);
+        long[] segmentLoad = Arrays.copyOfRange(load, i, i + length);
+        tours.set(r, concat(tour, 0, i, tour, i + length, tour.length));
+        loads.set(r, concat(load, 0, i, load, i + length, load.length));
+        tours.set(s, concat(concat(target, 0, after + 1, segment, 0, length), 0, after + 1 + length, target, after + 1, target.length));
+        loads.set(s, concat(concat(targetLoad, 0, after + 1, segmentLoad, 0, length), 0, after + 1 + length, targetLoad, after + 1, targetLoad.length));
+        reindex(r);
+        reindex(s);
+    }
+
+    // Travel time, or NaN if the entry cannot be used, so any sum with it fails every comparison
+    private double cost(int from, int to) {
+        double time = matrix.getTime(from, to);
+        return time == Double.MAX_VALUE ? Double.NaN : time;
+    }
+
+    // Whether the stops from tour[from] up to the closing depot include a split delivery
+    private boolean containsFixed(int[] tour, int from) {
+        for (int k = from; k < tour.length - 1; k++) {
+            if (fixed[tour[k]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long prefixLoad(int trip, int position) {
+        long sum = 0;
+        long[] load = loads.get(trip);
+        for (int k = 1; k <= position; k++) {
+            sum += load[k];
+        }
+        return sum;
+    }
+
+    private void load(RoutePlan plan) {
+        int size = matrix.size();
+        int[] visits = new int[size];
+        for (int trip = 0; trip < plan.getTripCount(); trip++) {
+            int[] stops = plan.getStops(trip);
+            int[] tour = new int[stops.length + 2];
+            long[] load = new long[stops.length + 2];
+            System.arraycopy(stops, 0, tour, 1, stops.length);
+            System.arraycopy(plan.getUnits(trip), 0, load, 1, stops.length);
+            tours.add(tour);
+            loads.add(load);
+            for (int stop : stops) {
+                visits[stop]++;
+            }
+        }
+
+        tripLoad = new long[tours.size()];
+        tripOf = new int[size];
+        positionOf = new int[size];
+        fixed = new boolean[size];
+        queued = new boolean[size];
+        Arrays.fill(tripOf, -1);
+        // Split deliveries are fixed, they are never picked up as u or v
+        for (int node = 0; node < size; node++) {
+            fixed[node] = visits[node] != 1;
+        }
+        for (int trip = 0; trip < tours.size(); trip++) {
+            reindex(trip);
+        }
+    }
+
+    private void store(RoutePlan plan) {
+        RoutePlan improved = new RoutePlan();
+        for (int trip = 0; trip < tours.size(); trip++) {
+            int[] tour = tours.get(trip);
+            if (tour.length > 2) {
+                improved.addTrip(Arrays.copyOfRange(tour, 1, tour.length - 1), Arrays.copyOfRange(loads.get(trip), 1, tour.length - 1));
+            }
+        }
+        plan.replaceWith(improved);
+    }
+
+    private void reindex(int trip) {
+        int[] tour = tours.get(trip);
+        long[] load = loads.get(trip);
+        long sum = 0;
+        for (int k = 1; k < tour.length - 1; k++) {
+            if (!fixed[tour[k]]) {
+                tripOf[tour[k]] = trip;
+                positionOf[tour[k]] = k;
+            }
+            sum += load[k];
+        }
+        tripLoad[trip] = sum;
+    }
+
+    // Clears the don't-look bits of a position and its trip neighbours
+    private void activateAround(int trip, int position) {
+        int[] tour = tours.get(trip);
+        for (int k = Math.max(0, position - 1); k <= Math.min(tour.length - 1, position + 1); k++) {
+            activate(tour[k]);
+        }
+    }
+
+    private void activate(int node) {
+        if (node != 0 && !queued[node]) {
+            queued[node] = true;
+            queue.add(node);
+        }
+    }
+
+    private static void reverse(int[] tour, long[] load, int i, int j) {
+        while (i < j) {
+            int node = tour[i];
+            tour[i] = tour[j];
+            tour[j] = node;
+            long units = load[i];
+            load[i] = load[j];
+            load[j] = units;
+            i++;
+            j--;
+        }
+    }
+
+    private static int[] concat(int[] first, int firstFrom, int firstTo, int[] second, int secondFrom, int secondTo) {
+        int[] result = new int[(firstTo - firstFrom) + (secondTo - secondFrom)];
+        System.arraycopy(first, firstFrom, result, 0, firstTo - firstFrom);
+        System.arraycopy(second, secondFrom, result, firstTo - firstFrom, secondTo - secondFrom);
+        return result;
+    }
+
+    private static long[] concat(long[] first, int firstFrom, int firstTo, long[] second, int secondFrom, int secondTo) {
+        long[] result = new long[(firstTo - firstFrom) + (secondTo - secondFrom)];
+        System.arraycopy(first, firstFrom, result, 0, firstTo - firstFrom);
+        System.arraycopy(second, secondFrom, result, firstTo - firstFrom, secondTo - secondFrom);
+        return result;
+    }
+}
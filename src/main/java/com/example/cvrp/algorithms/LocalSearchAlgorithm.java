@@ -0,0 +1,64 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.List;
+
+/**
+ * Runs another algorithm and post-optimises its routes with LocalSearch on the same distance matrix.
+ * Under a solve context the wrapped algorithm gets the budget, the local search always runs to its local optimum.
+ */
+public class LocalSearchAlgorithm implements AnytimeAlgorithm {
+
+    private final RoutingAlgorithm algorithm;
+    private final int neighbors;
+
+    public LocalSearchAlgorithm(RoutingAlgorithm algorithm, int neighbors) {
+        this.algorithm = algorithm;
+        this.neighbors = neighbors;
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(Address depot, List<Address> addresses, long vehicleCapacity) {
+        DistanceMatrix matrix = buildDistanceMatrix(depot, addresses);
+        return calculateRoute(matrix, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(List<Address> addresses, Long vehicleCapacity) {
+        System.out.println("With Local Search");
+        Address depot = addresses.get(0);
+        return calculateRoute(depot, addresses, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity) {
+        return calculateRoute(matrix, vehicleCapacity, new SolveContext());
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity, SolveContext context) {
+        List<RouteLeg> routeLegs = context.solve(algorithm, matrix, vehicleCapacity);
+
+        RoutePlan plan = RoutePlan.fromRouteLegs(matrix, routeLegs);
+        double before = plan.getTravelTime(matrix);
+        long startTime = System.currentTimeMillis();
+        int moves = new LocalSearch(matrix, vehicleCapacity, neighbors).improve(plan);
+        System.out.println("Local search: " + moves + " moves in " + (System.currentTimeMillis() - startTime) + "ms, travel time "
+                + before + "s -> " + plan.getTravelTime(matrix) + "s");
+
+        return plan.toRouteLegs(matrix);
+    }
+
+    @Override
+    public DistanceMatrix buildDistanceMatrix(Address depot, List<Address> addresses) {
+        return algorithm.buildDistanceMatrix(depot, addresses);
+    }
+
+    // The algorithm whose routes are improved
+    public RoutingAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+}
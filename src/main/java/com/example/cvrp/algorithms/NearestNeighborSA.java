@@ -2,89 +2,49 @@ package com.example.cvrp.algorithms;
 
 import com.example.cvrp.dto.RouteLeg;
 import com.example.cvrp.model.Address;
-import com.example.cvrp.model.GoogleMapsResponse;
-import com.example.cvrp.dto.TimeDistance;
-import com.example.cvrp.service.GoogleMapsServiceImp;
+import com.example.cvrp.model.DistanceMatrix;
+import com.example.cvrp.service.CostProvider;
 
 import java.util.*;
 
-public class NearestNeighborSA implements RoutingAlgorithm {
+public class NearestNeighborSA implements AnytimeAlgorithm {
 
-    private final GoogleMapsServiceImp googleMapsService;
-    private Map<String, TimeDistance> distanceCache = new HashMap<>();
+    private final CostProvider costProvider;
     private final double initialTemperature = 10000;
-    private double temperature = initialTemperature;
-    private double coolingRate = 0.01;
-    private int googleMapsRequestCount = 0;
+    private final int candidateCount;
 
-    public NearestNeighborSA(GoogleMapsServiceImp googleMapsService) {
-        this.googleMapsService = googleMapsService;
+    public NearestNeighborSA(CostProvider costProvider) {
+        this(costProvider, NearestNeighborTour.DEFAULT_CANDIDATES);
+    }
+
+    public NearestNeighborSA(CostProvider costProvider, int candidateCount) {
+        this.costProvider = costProvider;
+        this.candidateCount = candidateCount;
     }
 
     @Override
     public List<RouteLeg> calculateRoute(Address depot, List<Address> addresses, long vehicleCapacity) {
-        // Ensure the depot is included in the addresses list if not already
-        if (!addresses.contains(depot)) {
-            addresses.add(0, depot); // Add depot as the first address if it's not included
-        }
-        temperature = initialTemperature;
-        int addressCount = addresses.size();
-        double coolingRate;
-
-        if (addressCount <= 16) {
-            coolingRate = 0.01;
-        } else if (addressCount <= 41) {
-            coolingRate = 0.025;
-        } else if (addressCount <= 101) {
-            coolingRate = 0.025;
-        } else {
-            coolingRate = 0.025;
-        }
-        depot.setUnit(0L); // Ensure depot demand is 0
-
-        // Use Nearest Neighbor to get the initial route as addresses
-        List<Address> currentSolution = generateInitialSolutionForSA(depot, addresses);
-
-        List<Address> bestSolution = new ArrayList<>(currentSolution);
-
-        while (temperature > 1) {
-            List<Address> newSolution = generateNeighborSolution(currentSolution, vehicleCapacity);
-
-            double currentEnergy = calculateObjectiveValue(currentSolution, depot);
-            double neighborEnergy = calculateObjectiveValue(newSolution, depot);
-
-            if (acceptanceProbability(currentEnergy, neighborEnergy, temperature) > Math.random()) {
-                currentSolution = new ArrayList<>(newSolution);
-            }
-
-            if (calculateObjectiveValue(currentSolution, depot) < calculateObjectiveValue(bestSolution, depot)) {
-                bestSolution = new ArrayList<>(currentSolution);
-                System.out.println("New best solution found: " + calculateObjectiveValue(bestSolution, depot));
-            }
-
-            temperature *= 1 - coolingRate;
-        }
-
-        List<RouteLeg> finalRouteLegs = convertToRouteLegs(bestSolution, depot, vehicleCapacity);
-
-
-        System.out.println("Final Route:");
-        for (RouteLeg leg : finalRouteLegs) {
-            System.out.println("From ID: " + leg.getOriginId() + " To ID: " + leg.getDestinationId() +
-                    " - Distance: " + leg.getDistance() + "m, Time: " + leg.getTime() + "s");
-        }
-
-
-        System.out.println("\nGoogle Maps API requests count in Nearest Neighbor SA: " + googleMapsRequestCount);
-        return finalRouteLegs;
+        DistanceMatrix matrix = buildDistanceMatrix(depot, addresses);
+        return calculateRoute(matrix, vehicleCapacity);
     }
 
     // Testing purposes
     @Override
     public List<RouteLeg> calculateRoute(List<Address> addresses, Long vehicleCapacity) {
         System.out.println("Nearest Neighbor SA Algorithm");
-        temperature = initialTemperature;
-        int addressCount = addresses.size();
+        Address depot = findDepot(addresses);
+        return calculateRoute(depot, addresses, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity) {
+        return calculateRoute(matrix, vehicleCapacity, new SolveContext());
+    }
+
+    // With a budget the search re-anneals from its best tour whenever it has cooled down, until the budget is used up
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity, SolveContext context) {
+        int addressCount = matrix.size();
         double coolingRate;
 
         // Determine the cooling rate based on the address count
@@ -97,40 +57,15 @@ public class NearestNeighborSA implements RoutingAlgorithm {
         } else {
             coolingRate = 0.025;
         }
-        this.coolingRate = coolingRate;
-
-        Address depot = findDepot(addresses);
-        depot.setUnit(0L); // Ensure depot demand is 0
-        List<Address> currentSolution = generateInitialSolutionForSA(addresses);
-        List<Address> bestSolution = new ArrayList<>(currentSolution);
-
-        /*System.out.println("Received addresses from SA:");
-        for (Address address : addresses) {
-            System.out.println("ID: " + address.getId() + ", Latitude: " + address.getLatitude() + ", Longitude: " + address.getLongitude());
-        }*/
-
-        while (temperature > 1) {
-
-            //System.out.println("TEMPERATURE: " + temperature);
-
-            List<Address> newSolution = generateNeighborSolution(currentSolution, vehicleCapacity);
-
-            double currentEnergy = calculateObjectiveValue(currentSolution, depot);
-            double neighborEnergy = calculateObjectiveValue(newSolution, depot);
-
-            if (acceptanceProbability(currentEnergy, neighborEnergy, temperature) > Math.random()) {
-                currentSolution = new ArrayList<>(newSolution);
-            }
-
-            if (calculateObjectiveValue(currentSolution, depot) < calculateObjectiveValue(bestSolution, depot)) {
-                bestSolution = new ArrayList<>(currentSolution);
-                System.out.println("New best solution found: " + calculateObjectiveValue(bestSolution, depot));
-            }
+        context.recordSchedule(initialTemperature, coolingRate);
 
-            temperature *= 1 - coolingRate;
-        }
+        // Use Nearest Neighbor to get the initial route as matrix positions, then anneal it on the bare tour time.
+        // The chain is local to this solve, so the instance can serve concurrent solves
+        AnnealingChain chain = new AnnealingChain(matrix, vehicleCapacity, false, generateInitialSolutionForSA(matrix), new Random());
+        chain.search(context, initialTemperature, coolingRate);
+        System.out.println("Best energy found: " + chain.getBestEnergy() + " after " + context.getIterations() + " iterations");
 
-        List<RouteLeg> finalRouteLegs = convertToRouteLegs(bestSolution, depot, vehicleCapacity);
+        List<RouteLeg> finalRouteLegs = Split.toRouteLegs(matrix, chain.getBestTour(), vehicleCapacity);
 
 
         System.out.println("Final Route:");
@@ -139,146 +74,19 @@ public class NearestNeighborSA implements RoutingAlgorithm {
                     " - Distance: " + leg.getDistance() + "m, Time: " + leg.getTime() + "s");
         }
 
-
-        System.out.println("\n\nGoogle Maps API requests count: " + googleMapsRequestCount);
         return finalRouteLegs;
     }
 
 
-    private List<Address> generateNeighborSolution(List<Address> currentSolution, Long vehicleCapacity) {
-        List<Address> neighborSolution = new ArrayList<>(currentSolution);
-        Random random = new Random();
-        int strategy = random.nextInt(3); // Randomly choose a strategy (0: Swap, 1: Reversal, 2: Insertion)
-
-        switch (strategy) {
-            case 0: // Swap
-                int index1 = 1 + random.nextInt(neighborSolution.size() - 1);
-                int index2 = 1 + random.nextInt(neighborSolution.size() - 1);
-                while (index1 == index2) {
-                    index2 = 1 + random.nextInt(neighborSolution.size() - 1);
-                }
-                Collections.swap(neighborSolution, index1, index2);
-                break;
-
-            case 1: // Reversal
-                int start = 1 + random.nextInt(neighborSolution.size() - 2);
-                int end = start + random.nextInt(neighborSolution.size() - start);
-                Collections.reverse(neighborSolution.subList(start, end + 1));
-                break;
-
-            case 2: // Insertion
-                int removeIndex = 1 + random.nextInt(neighborSolution.size() - 1);
-                Address address = neighborSolution.remove(removeIndex);
-                int insertIndex = 1 + random.nextInt(neighborSolution.size() - 1);
-                neighborSolution.add(insertIndex, address);
-                break;
-        }
-
-        return neighborSolution;
-    }
-
-    private double calculateObjectiveValue(List<Address> solution, Address depot) {
-        double totalTravelTime = 0.0;  // Total time in seconds
-        //double totalDistance = 0.0;    // Total distance in meters
-
-        for (int i = 0; i < solution.size() - 1; i++) {
-            // Fetch time and distance between consecutive addresses
-            TimeDistance timeDistance = getTimeDistanceBetweenAddresses(solution.get(i), solution.get(i + 1));
-            totalTravelTime += timeDistance.getTime();     // Accumulate time in seconds
-            //totalDistance += timeDistance.getDistance();   // Accumulate distance in meters
-        }
-
-        Address lastAddress = solution.get(solution.size() - 1);
-        TimeDistance backToDepot = getTimeDistanceBetweenAddresses(lastAddress, depot);
-        totalTravelTime += backToDepot.getTime();
-
-        return totalTravelTime;
-
-    }
-
-    private List<RouteLeg> convertToRouteLegs(List<Address> bestSolution, Address depot, Long vehicleCapacity) {
-        List<RouteLeg> routeLegs = new ArrayList<>();
-        Long currentCapacity = vehicleCapacity;
-
-        for (int i = 0; i < bestSolution.size() - 1; i++) {
-            Address from = bestSolution.get(i);
-            Address to = bestSolution.get(i + 1);
-            Long remainingDemand = to.getUnit();  // Make a copy of the demand
-
-            while (remainingDemand > 0) {
-                if (remainingDemand > currentCapacity) {
-                    // Deliver as much as possible with the current capacity
-                    routeLegs.addAll(deliverUnits(from, to, currentCapacity));
-                    remainingDemand -= currentCapacity;
-                    currentCapacity = vehicleCapacity;
-                    routeLegs.addAll(returnToDepotAndRefill(to, depot));
-                    from = depot;
-                } else {
-                    // Deliver the remaining units
-                    routeLegs.addAll(deliverUnits(from, to, remainingDemand));
-                    currentCapacity -= remainingDemand;
-                    remainingDemand = 0L;
-                }
-            }
-
-            // If the current capacity is 0 after unloading, return to the depot to refill before proceeding
-            if (currentCapacity == 0) {
-                routeLegs.addAll(returnToDepotAndRefill(to, depot));
-                currentCapacity = vehicleCapacity;
-
-                // Add leg from depot to next address with the next address' demand
-                if (i < bestSolution.size() - 2) { // Check to avoid out-of-bounds error
-                    Address nextTo = bestSolution.get(i + 2);
-                    routeLegs.addAll(addLegFromDepotToNextAddress(depot, nextTo, nextTo.getUnit()));
-                    i++; // Skip the next address as it's already processed
-                }
-            }
-        }
-
-        // Ensure the last leg returns to the depot
-        addFinalLegToDepot(bestSolution, depot, routeLegs);
-
-        return routeLegs;
-    }
-
-    private TimeDistance getTimeDistanceBetweenAddresses(Address from, Address to) {
-
-        String cacheKey = from.getLatitude() + "," + from.getLongitude() + "->" + to.getLatitude() + "," + to.getLongitude();
-
-        if (distanceCache.containsKey(cacheKey)) {
-            return distanceCache.get(cacheKey);
-        }
-
-        GoogleMapsResponse response = googleMapsService.getDistanceMatrix(
-                from.getLatitude() + "," + from.getLongitude(),
-                to.getLatitude() + "," + to.getLongitude()
-        );
-        googleMapsRequestCount++;
-
-        if (response == null || response.getRows().isEmpty() || response.getRows().get(0).getElements().isEmpty()) {
-            TimeDistance errorResult = new TimeDistance(Double.MAX_VALUE, Double.MAX_VALUE); // Handle error
-            distanceCache.put(cacheKey, errorResult);
-            return errorResult;
-        }
-
-        Double time = response.getRows().get(0).getElements().get(0).getDuration().getValue();
-        Double distance = response.getRows().get(0).getElements().get(0).getDistance().getValue();
-        TimeDistance result = new TimeDistance(time, distance);
-
-        // Cache the result
-        distanceCache.put(cacheKey, result);
-
-        return result;
+    @Override
+    public DistanceMatrix buildDistanceMatrix(Address depot, List<Address> addresses) {
+        DistanceMatrix matrix = new DistanceMatrix(depot, addresses);
+        int requestCount = costProvider.fillDistanceMatrix(matrix);
+        System.out.println("Cost requests count in Nearest Neighbor SA: " + requestCount);
+        return matrix;
     }
 
 
-    private double acceptanceProbability(double currentEnergy, double newEnergy, double temperature) {
-        if (newEnergy < currentEnergy) {
-            return 1.0;
-        }
-        return Math.exp((currentEnergy - newEnergy) / temperature);
-    }
-
     private Address findDepot(List<Address> addresses) {
         return addresses.stream()
                 .filter(address -> address.getId().equals(1L)) // Assuming depot's ID is 1
@@ -287,156 +95,16 @@ public class NearestNeighborSA implements RoutingAlgorithm {
     }
 
 
-    private List<RouteLeg> deliverUnits(Address from, Address to, Long units) {
-        List<RouteLeg> routeLegs = new ArrayList<>();
-        TimeDistance timeDistance = getTimeDistanceBetweenAddresses(from, to);
-        routeLegs.add(new RouteLeg(from.getId(), to.getId(), from.getLatitude(), from.getLongitude(),
-                to.getLatitude(), to.getLongitude(), timeDistance.getTime(), timeDistance.getDistance(), units));
-        return routeLegs;
-    }
-
-    private List<RouteLeg> returnToDepotAndRefill(Address from, Address depot) {
-        List<RouteLeg> routeLegs = new ArrayList<>();
-        TimeDistance backToDepot = getTimeDistanceBetweenAddresses(from, depot);
-        routeLegs.add(new RouteLeg(from.getId(), depot.getId(), from.getLatitude(), from.getLongitude(),
-                depot.getLatitude(), depot.getLongitude(), backToDepot.getTime(), backToDepot.getDistance(), 0L));
-        return routeLegs;
-    }
-
-    private List<RouteLeg> addLegFromDepotToNextAddress(Address depot, Address nextTo, Long units) {
-        List<RouteLeg> routeLegs = new ArrayList<>();
-        TimeDistance fromDepot = getTimeDistanceBetweenAddresses(depot, nextTo);
-        routeLegs.add(new RouteLeg(depot.getId(), nextTo.getId(), depot.getLatitude(), depot.getLongitude(),
-                nextTo.getLatitude(), nextTo.getLongitude(), fromDepot.getTime(), fromDepot.getDistance(), units));
-        return routeLegs;
-    }
-
-    private void addFinalLegToDepot(List<Address> bestSolution, Address depot, List<RouteLeg> routeLegs) {
-        Address lastAddress = bestSolution.get(bestSolution.size() - 1);
-        if (!lastAddress.equals(depot)) {
-            TimeDistance backToDepot = getTimeDistanceBetweenAddresses(lastAddress, depot);
-            routeLegs.add(new RouteLeg(lastAddress.getId(), depot.getId(), lastAddress.getLatitude(), lastAddress.getLongitude(),
-                    depot.getLatitude(), depot.getLongitude(), backToDepot.getTime(), backToDepot.getDistance(), 0L));
-        }
-    }
-
     // Nearest Neighbor part
     // Nearest Neighbor part
     // Nearest Neighbor part
 
-    public List<Address> generateInitialSolutionForSA(Address depot, List<Address> addresses) {
-        List<Address> routeAddresses = new ArrayList<>();
-        if (addresses == null || addresses.isEmpty()) {
-            return routeAddresses; // Return an empty list if input is null or empty
-        }
-
-        // Ensure the depot is the starting point of the route
-        routeAddresses.add(depot);
-
-        List<Address> tempAddresses = new ArrayList<>(addresses);
-        tempAddresses.remove(depot); // Remove depot from the list to avoid re-visiting
-
-        Address currentAddress = depot;
-
-        while (!tempAddresses.isEmpty()) {
-            Address nextAddress = findNearestDestinationWithoutCapacity(currentAddress, tempAddresses);
-            if (nextAddress == null) {
-                // If no feasible next address found, it might indicate a logic error since capacity is not considered
-                throw new IllegalStateException("No feasible next address found without considering capacity.");
-            }
-
-            // Add the next address to the route and update the current address
-            routeAddresses.add(nextAddress);
-            tempAddresses.remove(nextAddress);
-            currentAddress = nextAddress;
-        }
-
-        return routeAddresses;
-    }
-
-    // Testing purposes
-    public List<Address> generateInitialSolutionForSA(List<Address> addresses) {
-        List<Address> routeAddresses = new ArrayList<>();
-        Address depot = addresses.get(0);
-
-        if (addresses == null || addresses.isEmpty()) {
-            return routeAddresses; // Return an empty list if input is null or empty
-        }
-
-        // Ensure the depot is the starting point of the route
-        routeAddresses.add(depot);
-
-        List<Address> tempAddresses = new ArrayList<>(addresses);
-        tempAddresses.remove(depot); // Remove depot from the list to avoid re-visiting
-
-        Address currentAddress = depot;
-
-        while (!tempAddresses.isEmpty()) {
-            Address nextAddress = findNearestDestinationWithoutCapacity(currentAddress, tempAddresses);
-            if (nextAddress == null) {
-                // If no feasible next address found, it might indicate a logic error since capacity is not considered
-                throw new IllegalStateException("No feasible next address found without considering capacity.");
-            }
-
-            // Add the next address to the route and update the current address
-            routeAddresses.add(nextAddress);
-            tempAddresses.remove(nextAddress);
-            currentAddress = nextAddress;
-        }
-
-        // Print the routeAddresses before returning
-        System.out.println("Generated Initial Solution for SA:");
-        for (Address address : routeAddresses) {
-            System.out.println("Address ID: " + address.getId() + ", Latitude: " + address.getLatitude() + ", Longitude: " + address.getLongitude());
-        }
-
-        return routeAddresses;
-    }
-
-    private Address findNearestDestinationWithoutCapacity(Address origin, List<Address> potentialDestinations) {
-        Address optimalDestination = null;
-        Double shortestTime = Double.MAX_VALUE;
-        Double shortestDistance = Double.MAX_VALUE;
-
-        for (Address destination : potentialDestinations) {
-            if (!destination.equals(origin)) {
-                GoogleMapsResponse response = getGoogleMapsResponse(origin, destination);
-
-                if (response != null && response.getRows() != null && !response.getRows().isEmpty()) {
-                    Double time = response.getRows().get(0).getElements().get(0).getDuration().getValue();
-                    Double distance = response.getRows().get(0).getElements().get(0).getDistance().getValue();
-
-                    if (time < shortestTime || (time.equals(shortestTime) && distance < shortestDistance)) {
-                        shortestTime = time;
-                        shortestDistance = distance;
-                        optimalDestination = destination;
-                    }
-                }
-            }
-        }
-        return optimalDestination;
-    }
-
-    private GoogleMapsResponse getGoogleMapsResponse(Address origin, Address destination) {
-        try {
-            // Prepare the parameters for the Google Maps API request
-            String originParam = origin.getLatitude() + "," + origin.getLongitude();
-            String destinationParam = destination.getLatitude() + "," + destination.getLongitude();
-
-            // Call Google Maps API and return the response
-            return googleMapsService.getDistanceMatrix(originParam, destinationParam);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+    public int[] generateInitialSolutionForSA(DistanceMatrix matrix) {
+        return NearestNeighborTour.build(matrix, candidateCount);
     }
 
     public double getInitialTemperature() {
         return initialTemperature;
     }
 
-    public double getCoolingRate() {
-        return coolingRate;
-    }
-
 }
@@ -0,0 +1,91 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+/**
+ * Nearest neighbour giant tour from the depot, ignoring capacity. By default every step scans the unvisited
+ * addresses of the origin's matrix row. With a candidate count, a step only compares the travel times of the
+ * geometrically closest unvisited addresses from a SpatialIndex. That does not save any lookups on a filled
+ * matrix, and the fastest address can be outside the shortlist, so it may build a different, longer tour; it is
+ * only meant for very large inputs where the O(n) scan per step dominates.
+ */
+public final class NearestNeighborTour {
+
+    public static final int DEFAULT_CANDIDATES = 0;
+
+    private NearestNeighborTour() {
+    }
+
+    /**
+     * @param candidates unvisited addresses compared per step, 0 compares all of them
+     * @return matrix positions in visiting order, position 0 of the tour is the depot
+     */
+    public static int[] build(DistanceMatrix matrix, int candidates) {
+        int size = matrix.size();
+        int[] route = new int[size];
+        if (candidates <= 0 || candidates >= size - 1) {
+            boolean[] visited = new boolean[size];
+            visited[0] = true; // Start from the depot
+            int origin = 0;
+            for (int position = 1; position < size; position++) {
+                int nextAddress = findNearestNeighbor(matrix, origin, visited);
+                route[position] = nextAddress;
+                visited[nextAddress] = true;
+                origin = nextAddress;
+            }
+            return route;
+        }
+
+        SpatialIndex index = new SpatialIndex(matrix);
+        int[] shortlist = new int[candidates];
+        int origin = 0;
+        for (int position = 1; position < size; position++) {
+            int count = index.nearest(matrix.getAddress(origin), candidates, shortlist);
+            int nextAddress = closest(matrix, origin, shortlist, count);
+            route[position] = nextAddress;
+            index.delete(nextAddress);
+            origin = nextAddress;
+        }
+        return route;
+    }
+
+    private static int findNearestNeighbor(DistanceMatrix matrix, int origin, boolean[] visited) {
+        int nearestNeighbor = -1;
+        double shortestTime = Double.MAX_VALUE;
+        double shortestDistance = Double.MAX_VALUE;
+
+        for (int destination = 1; destination < matrix.size(); destination++) {
+            if (!visited[destination]) {
+                double time = matrix.getTime(origin, destination);
+                double distance = matrix.getDistance(origin, destination);
+
+                if (nearestNeighbor < 0 || time < shortestTime || (time == shortestTime && distance < shortestDistance)) {
+                    shortestTime = time;
+                    shortestDistance = distance;
+                    nearestNeighbor = destination;
+                }
+            }
+        }
+        return nearestNeighbor;
+    }
+
+    // Fastest candidate by true travel time, ties broken by distance
+    private static int closest(DistanceMatrix matrix, int origin, int[] shortlist, int count) {
+        int nearestNeighbor = -1;
+        double shortestTime = Double.MAX_VALUE;
+        double shortestDistance = Double.MAX_VALUE;
+
+        for (int k = 0; k < count; k++) {
+            int destination = shortlist[k];
+            double time = matrix.getTime(origin, destination);
+            double distance = matrix.getDistance(origin, destination);
+
+            if (nearestNeighbor < 0 || time < shortestTime || (time == shortestTime && distance < shortestDistance)) {
+                shortestTime = time;
+                shortestDistance = distance;
+                nearestNeighbor = destination;
+            }
+        }
+        return nearestNeighbor;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.stream.IntStream;
+
+/**
+ * Nearest customers of every customer by travel time, the candidate lists that keep granular savings and local
+ * search passes close to linear. Unknown travel times count as infinitely far.
+ */
+public final class NeighborLists {
+
+    private NeighborLists() {
+    }
+
+    /**
+     * The k nearest customers of every matrix position, nearest first. Row 0 (the depot) is left empty.
+     */
+    public static int[][] build(DistanceMatrix matrix, int k) {
+        int size = matrix.size();
+        int neighbors = Math.max(0, Math.min(k, size - 2));
+        int[][] lists = new int[size][];
+        lists[0] = new int[0];
+        IntStream rows = IntStream.range(1, size);
+        if ((long) size * size >= 1 << 20) {
+            rows = rows.parallel();
+        }
+        rows.forEach(a -> {
+            int[] nearest = nearest(matrix, a, neighbors);
+            lists[a] = IntStream.of(nearest).boxed()
+                    .sorted((x, y) -> Double.compare(time(matrix, a, x), time(matrix, a, y)))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        });
+        return lists;
+    }
+
+    /**
+     * The k customers closest to customer a by travel time from a, in no particular order.
+     * Kept in a bounded max-heap on the largest time, so a row costs O(n log k) with two small arrays.
+     */
+    public static int[] nearest(DistanceMatrix matrix, int a, int k) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] heapNodes = new int[k];
+        double[] heapTimes = new double[k];
+        int heapSize = 0;
+
+        for (int b = 1; b < matrix.size(); b++) {
+            if (b == a) {
+                continue;
+            }
+            double time = time(matrix, a, b);
+            if (heapSize < k) {
+                // Sift up
+                int child = heapSize++;
+                while (child > 0) {
+                    int parent = (child - 1) / 2;
+                    if (heapTimes[parent] >= time) {
+                        break;
+                    }
+                    heapNodes[child] = heapNodes[parent];
+                    heapTimes[child] = heapTimes[parent];
+                    child = parent;
+                }
+                heapNodes[child] = b;
+                heapTimes[child] = time;
+            } else if (time < heapTimes[0]) {
+                // Replace the farthest neighbour so far and sift down
+                int parent = 0;
+                while (true) {
+                    int child = 2 * parent + 1;
+                    if (child >= k) {
+                        break;
+                    }
+                    if (child + 1 < k && heapTimes[child + 1] > heapTimes[child]) {
+                        child++;
+                    }
+                    if (heapTimes[child] <= time) {
+                        break;
+                    }
+                    heapNodes[parent] = heapNodes[child];
+                    heapTimes[parent] = heapTimes[child];
+                    parent = child;
+                }
+                heapNodes[parent] = b;
+                heapTimes[parent] = time;
+            }
+        }
+        return heapNodes;
+    }
+
+    private static double time(DistanceMatrix matrix, int a, int b) {
+        double time = matrix.getTime(a, b);
+        return Double.isNaN(time) ? Double.POSITIVE_INFINITY : time;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+import com.example.cvrp.service.CostProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Multi-start simulated annealing: K independent chains with their own seeds run in parallel on the same
+ * read-only distance matrix and the best result wins. With a wall-clock budget, chains that have cooled down
+ * are re-annealed until the budget is used up. The budget of a SolveContext, when it has one, replaces the
+ * configured one. With exchange enabled, every exchangeInterval iterations a chain publishes its best tour and
+ * continues from the overall best one when that is better than its own.
+ * The energy is the capacity-aware split cost, so the winning tour is also the best driven route.
+ */
+public class ParallelSimulatedAnnealing implements AnytimeAlgorithm {
+
+    // Iterations between two deadline checks when exchange is disabled
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private final CostProvider costProvider;
+    private final ForkJoinPool pool;
+    private final int chainCount;
+    private final long budgetMillis;
+    private final int exchangeInterval;
+    private final double initialTemperature = 10000;
+
+    /**
+     * @param chainCount       number of parallel chains, 0 uses one per available processor
+     * @param budgetMillis     wall-clock budget per solve, 0 runs a single cooling schedule per chain
+     * @param exchangeInterval iterations between best-solution exchanges, 0 disables the exchange
+     */
+    public ParallelSimulatedAnnealing(CostProvider costProvider, int chainCount, long budgetMillis, int exchangeInterval) {
+        this.costProvider = costProvider;
+        this.chainCount = chainCount > 0 ? chainCount : Runtime.getRuntime().availableProcessors();
+        this.budgetMillis = budgetMillis;
+        this.exchangeInterval = exchangeInterval;
+        this.pool = new ForkJoinPool(this.chainCount);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(Address depot, List<Address> addresses, long vehicleCapacity) {
+        DistanceMatrix matrix = buildDistanceMatrix(depot, addresses);
+        return calculateRoute(matrix, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(List<Address> addresses, Long vehicleCapacity) {
+        System.out.println("Parallel Simulated Annealing Algorithm");
+        Address depot = findDepot(addresses);
+        return calculateRoute(depot, addresses, vehicleCapacity);
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity) {
+        return calculateRoute(matrix, vehicleCapacity, new SolveContext());
+    }
+
+    @Override
+    public List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity, SolveContext context) {
+        double coolingRate = matrix.size() <= 16 ? 0.01 : 0.025;
+        context.recordSchedule(initialTemperature, coolingRate);
+
+        boolean reanneal = budgetMillis > 0 || context.hasBudget();
+        long deadline = budgetMillis > 0 && !context.hasBudget() ? System.currentTimeMillis() + budgetMillis : Long.MAX_VALUE;
+        SharedBest sharedBest = new SharedBest(matrix, vehicleCapacity, context);
+        long baseSeed = System.nanoTime();
+
+        List<ForkJoinTask<?>> chains = new ArrayList<>(chainCount);
+        for (int k = 0; k < chainCount; k++) {
+            long seed = baseSeed + k * 0x9E3779B97F4A7C15L;
+            chains.add(pool.submit(() -> runChain(matrix, vehicleCapacity, seed, coolingRate, reanneal, deadline, context, sharedBest)));
+        }
+        chains.forEach(ForkJoinTask::join);
+
+        System.out.println("Best energy of " + chainCount + " chains: " + sharedBest.energy);
+        return Split.toRouteLegs(matrix, sharedBest.tour, vehicleCapacity);
+    }
+
+    // Stops the chain threads, solves that are still running finish first
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private void runChain(DistanceMatrix matrix, long vehicleCapacity, long seed, double coolingRate, boolean reanneal,
+                          long deadline, SolveContext context, SharedBest sharedBest) {
+        Random random = new Random(seed);
+        AnnealingChain chain = new AnnealingChain(matrix, vehicleCapacity, true, AnnealingChain.shuffledTour(matrix.size(), random), random);
+        int iterationsPerStep = exchangeInterval > 0 ? exchangeInterval : DEADLINE_CHECK_INTERVAL;
+
+        while (true) {
+            chain.setTemperature(initialTemperature);
+            while (!chain.isCold() && !shouldStop(deadline, context)) {
+                context.addIterations(chain.run(iterationsPerStep, coolingRate));
+                if (exchangeInterval > 0) {
+                    sharedBest.exchange(chain);
+                } else {
+                    sharedBest.offer(chain);
+                }
+            }
+            sharedBest.offer(chain);
+
+            if (!reanneal || shouldStop(deadline, context) || matrix.size() <= 2) {
+                return;
+            }
+            // Re-anneal from the best tour known so far while there is budget left
+            if (exchangeInterval > 0) {
+                sharedBest.exchange(chain);
+            } else {
+                chain.restartFrom(chain.getBestTour(), chain.getBestEnergy());
+            }
+        }
+    }
+
+    private static boolean shouldStop(long deadline, SolveContext context) {
+        return System.currentTimeMillis() >= deadline || context.shouldStop();
+    }
+
+    @Override
+    public DistanceMatrix buildDistanceMatrix(Address depot, List<Address> addresses) {
+        DistanceMatrix matrix = new DistanceMatrix(depot, addresses);
+        int requestCount = costProvider.fillDistanceMatrix(matrix);
+        System.out.println("Cost requests count in Parallel SA: " + requestCount);
+        return matrix;
+    }
+
+    private Address findDepot(List<Address> addresses) {
+        return addresses.stream()
+                .filter(address -> address.getId().equals(1L)) // Assuming depot's ID is 1
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Depot not found"));
+    }
+
+    public double getInitialTemperature() {
+        return initialTemperature;
+    }
+
+    // Best tour over all chains of one solve, every improvement is also offered to the solve context
+    private static final class SharedBest {
+        private final DistanceMatrix matrix;
+        private final long vehicleCapacity;
+        private final SolveContext context;
+        private int[] tour;
+        private double energy = Double.POSITIVE_INFINITY;
+
+        SharedBest(DistanceMatrix matrix, long vehicleCapacity, SolveContext context) {
+            this.matrix = matrix;
+            this.vehicleCapacity = vehicleCapacity;
+            this.context = context;
+        }
+
+        synchronized void offer(AnnealingChain chain) {
+            if (tour == null || chain.getBestEnergy() < energy) {
+                tour = chain.getBestTour().clone();
+                energy = chain.getBestEnergy();
+                context.offerTour(matrix, tour, vehicleCapacity, energy);
+            }
+        }
+
+        // Publishes the chain's best tour and moves the chain onto the overall best one if that is better
+        synchronized void exchange(AnnealingChain chain) {
+            offer(chain);
+            if (energy < chain.getCurrentEnergy()) {
+                chain.restartFrom(tour, energy);
+            }
+        }
+    }
+}
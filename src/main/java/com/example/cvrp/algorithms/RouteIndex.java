@@ -0,0 +1,243 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route membership for Clarke-Wright merging over matrix positions 1..size-1 (position 0 is the depot).
+ * Every customer starts on its own route. Routes are kept as linked lists with their head and tail stored at
+ * the union-find root, so checking which route a customer is on and whether it is an endpoint is O(α(n)).
+ * Interior customers are never merge points. join() only appends one route's head to another route's tail.
+ * joinEnds() also merges head to head and tail to tail by reversing one of the routes. Travel times may be
+ * asymmetric, so the root also keeps each route's inner time in both driving directions. A merge is then priced
+ * in every orientation that makes the two customers adjacent, and the cheapest one is made if it saves time.
+ * With demands and a capacity, the load of every route is tracked at its root as well and joins that would
+ * overload the vehicle are rejected.
+ */
+public class RouteIndex {
+
+    private final int[] parent;
+    private final int[] routeSize;
+    private final int[] head;
+    private final int[] tail;
+    private final int[] next;
+    private final int[] previous;
+    private final long[] load;
+    // Time between the head and the tail of the route, driven forwards and backwards
+    private final double[] forwardTime;
+    private final double[] backwardTime;
+    private final DistanceMatrix matrix;
+    private final long capacity;
+
+    public RouteIndex(DistanceMatrix matrix) {
+        this(matrix, new long[matrix.size()], Long.MAX_VALUE);
+    }
+
+    // Demands are indexed by matrix position, each route may carry at most capacity units
+    public RouteIndex(DistanceMatrix matrix, long[] demands, long capacity) {
+        int size = demands.length;
+        this.matrix = matrix;
+        this.capacity = capacity;
+        load = demands.clone();
+        parent = new int[size];
+        routeSize = new int[size];
+        head = new int[size];
+        tail = new int[size];
+        next = new int[size];
+        previous = new int[size];
+        forwardTime = new double[size];
+        backwardTime = new double[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+            routeSize[i] = 1;
+            head[i] = i;
+            tail[i] = i;
+            next[i] = -1;
+            previous[i] = -1;
+        }
+    }
+
+    // Root of the route the customer is on, with path halving
+    public int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    public boolean sameRoute(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    public boolean isHead(int node) {
+        return head[find(node)] == node;
+    }
+
+    public boolean isTail(int node) {
+        return tail[find(node)] == node;
+    }
+
+    public int routeSize(int node) {
+        return routeSize[find(node)];
+    }
+
+    public long load(int node) {
+        return load[find(node)];
+    }
+
+    // True if the route ending at from can be followed by the route starting at to
+    public boolean canJoin(int from, int to) {
+        int fromRoute = find(from);
+        int toRoute = find(to);
+        return fromRoute != toRoute && tail[fromRoute] == from && head[toRoute] == to
+                && load[fromRoute] <= capacity - load[toRoute];
+    }
+
+    /**
+     * Appends the route starting at to after the route ending at from.
+     *
+     * @return false if the two customers are on the same route, are not the right endpoints or the joined
+     * route would exceed the capacity
+     */
+    public boolean join(int from, int to) {
+        if (!canJoin(from, to)) {
+            return false;
+        }
+        int fromRoute = find(from);
+        int toRoute = find(to);
+        next[from] = to;
+        previous[to] = from;
+        double newForwardTime = forwardTime[fromRoute] + time(from, to) + forwardTime[toRoute];
+        double newBackwardTime = backwardTime[toRoute] + time(to, from) + backwardTime[fromRoute];
+
+        int newHead = head[fromRoute];
+        int newTail = tail[toRoute];
+        int root = fromRoute;
+        int child = toRoute;
+        if (routeSize[root] < routeSize[child]) {
+            root = toRoute;
+            child = fromRoute;
+        }
+        parent[child] = root;
+        routeSize[root] += routeSize[child];
+        load[root] += load[child];
+        head[root] = newHead;
+        tail[root] = newTail;
+        forwardTime[root] = newForwardTime;
+        backwardTime[root] = newBackwardTime;
+        return true;
+    }
+
+    /**
+     * Merges the routes of a and b so that a and b become neighbours, if both are endpoints of their routes.
+     * Of the two orders, route of a first or route of b first, with either route reversed where needed, the
+     * cheapest by travel time from and back to the depot is made, and only if it is faster than the two routes
+     * driven separately.
+     *
+     * @return false if the customers are on the same route, are not endpoints, the merged route would exceed the
+     * capacity or no orientation saves time
+     */
+    public boolean joinEnds(int a, int b) {
+        int routeA = find(a);
+        int routeB = find(b);
+        if (routeA == routeB || load[routeA] > capacity - load[routeB]) {
+            return false;
+        }
+        boolean endpointA = head[routeA] == a || tail[routeA] == a;
+        boolean endpointB = head[routeB] == b || tail[routeB] == b;
+        if (!endpointA || !endpointB) {
+            return false;
+        }
+
+        // Route of a first: a's route must end at a, b's route must start at b. Then the other order
+        boolean reverseA = tail[routeA] != a;
+        boolean reverseB = head[routeB] != b;
+        double aFirst = mergedTime(routeA, reverseA, a, b, routeB, reverseB);
+        boolean reverseBFirst = tail[routeB] != b;
+        boolean reverseASecond = head[routeA] != a;
+        double bFirst = mergedTime(routeB, reverseBFirst, b, a, routeA, reverseASecond);
+
+        double separate = routeTime(routeA, false) + routeTime(routeB, false);
+        if (!(Math.min(aFirst, bFirst) < separate)) {
+            return false;
+        }
+        if (aFirst <= bFirst) {
+            orient(routeA, reverseA);
+            orient(routeB, reverseB);
+            return join(a, b);
+        }
+        orient(routeB, reverseBFirst);
+        orient(routeA, reverseASecond);
+        return join(b, a);
+    }
+
+    // Depot to depot time of first (ending at from) followed by second (starting at to), each reversed if asked
+    private double mergedTime(int first, boolean reverseFirst, int from, int to, int second, boolean reverseSecond) {
+        int start = reverseFirst ? tail[first] : head[first];
+        int end = reverseSecond ? head[second] : tail[second];
+        return time(0, start) + innerTime(first, reverseFirst) + time(from, to) + innerTime(second, reverseSecond) + time(end, 0);
+    }
+
+    private double routeTime(int root, boolean reversed) {
+        int start = reversed ? tail[root] : head[root];
+        int end = reversed ? head[root] : tail[root];
+        return time(0, start) + innerTime(root, reversed) + time(end, 0);
+    }
+
+    private double innerTime(int root, boolean reversed) {
+        return reversed ? backwardTime[root] : forwardTime[root];
+    }
+
+    // Turns the route around in O(route length) by swapping every customer's links
+    private void orient(int root, boolean reverse) {
+        if (!reverse) {
+            return;
+        }
+        for (int current = head[root]; current != -1; current = previous[current]) {
+            int following = next[current];
+            next[current] = previous[current];
+            previous[current] = following;
+        }
+        int oldHead = head[root];
+        head[root] = tail[root];
+        tail[root] = oldHead;
+        double oldForwardTime = forwardTime[root];
+        forwardTime[root] = backwardTime[root];
+        backwardTime[root] = oldForwardTime;
+    }
+
+    private double time(int from, int to) {
+        return matrix.getTime(from, to);
+    }
+
+    // Every route as matrix positions in driving order, the depot itself is not part of any route
+    public List<int[]> routes() {
+        List<int[]> routes = new ArrayList<>();
+        for (int node = 1; node < parent.length; node++) {
+            int root = find(node);
+            if (head[root] == node) {
+                int[] route = new int[routeSize[root]];
+                int position = 0;
+                for (int current = node; current != -1; current = next[current]) {
+                    route[position++] = current;
+                }
+                routes.add(route);
+            }
+        }
+        return routes;
+    }
+
+    // All routes one after another as a giant tour starting at the depot
+    public int[] toTour() {
+        int[] tour = new int[parent.length];
+        int position = 1;
+        for (int[] route : routes()) {
+            System.arraycopy(route, 0, tour, position, route.length);
+            position += route.length;
+        }
+        return tour;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Capacity-feasible trips over matrix positions. Each trip leaves the depot, delivers units[k] to stops[k]
+ * in order and returns to the depot. Addresses are only looked up when the plan is turned into RouteLegs.
+ */
+public class RoutePlan {
+
+    private final List<int[]> stops = new ArrayList<>();
+    private final List<long[]> units = new ArrayList<>();
+
+    public void addTrip(int[] tripStops, long[] tripUnits) {
+        stops.add(tripStops);
+        units.add(tripUnits);
+    }
+
+    public void setTrip(int trip, int[] tripStops, long[] tripUnits) {
+        stops.set(trip, tripStops);
+        units.set(trip, tripUnits);
+    }
+
+    public void replaceWith(RoutePlan other) {
+        stops.clear();
+        units.clear();
+        stops.addAll(other.stops);
+        units.addAll(other.units);
+    }
+
+    /**
+     * Reads RouteLegs back into trips over the matrix positions, a leg into the depot ends a trip.
+     * The matrix must contain every address the legs visit.
+     */
+    public static RoutePlan fromRouteLegs(DistanceMatrix matrix, List<RouteLeg> routeLegs) {
+        RoutePlan plan = new RoutePlan();
+        List<Integer> tripStops = new ArrayList<>();
+        List<Long> tripUnits = new ArrayList<>();
+        for (RouteLeg leg : routeLegs) {
+            int destination = matrix.indexOf(leg.getDestinationId());
+            if (destination < 0) {
+                throw new IllegalArgumentException("Address is not part of the distance matrix: " + leg.getDestinationId());
+            }
+            if (destination == 0) {
+                if (!tripStops.isEmpty()) {
+                    plan.addTrip(tripStops.stream().mapToInt(Integer::intValue).toArray(),
+                            tripUnits.stream().mapToLong(Long::longValue).toArray());
+                    tripStops.clear();
+                    tripUnits.clear();
+                }
+            } else {
+                tripStops.add(destination);
+                tripUnits.add(leg.getVehicleCapacity() != null ? leg.getVehicleCapacity() : 0L);
+            }
+        }
+        if (!tripStops.isEmpty()) {
+            plan.addTrip(tripStops.stream().mapToInt(Integer::intValue).toArray(),
+                    tripUnits.stream().mapToLong(Long::longValue).toArray());
+        }
+        return plan;
+    }
+
+    public int getTripCount() {
+        return stops.size();
+    }
+
+    public int[] getStops(int trip) {
+        return stops.get(trip);
+    }
+
+    public long[] getUnits(int trip) {
+        return units.get(trip);
+    }
+
+    public double getTravelTime(DistanceMatrix matrix) {
+        double totalTime = 0.0;
+        for (int[] tripStops : stops) {
+            int from = 0;
+            for (int stop : tripStops) {
+                totalTime += matrix.getTime(from, stop);
+                from = stop;
+            }
+            totalTime += matrix.getTime(from, 0);
+        }
+        return totalTime;
+    }
+
+    public List<RouteLeg> toRouteLegs(DistanceMatrix matrix) {
+        List<RouteLeg> routeLegs = new ArrayList<>();
+        for (int trip = 0; trip < stops.size(); trip++) {
+            int[] tripStops = stops.get(trip);
+            long[] tripUnits = units.get(trip);
+            int from = 0;
+            for (int k = 0; k < tripStops.length; k++) {
+                routeLegs.add(createLeg(matrix, from, tripStops[k], tripUnits[k]));
+                from = tripStops[k];
+            }
+            routeLegs.add(createLeg(matrix, from, 0, 0L)); // Back to the depot
+        }
+        return routeLegs;
+    }
+
+    private RouteLeg createLeg(DistanceMatrix matrix, int from, int to, long deliveredUnits) {
+        Address origin = matrix.getAddress(from);
+        Address destination = matrix.getAddress(to);
+        return new RouteLeg(origin.getId(), destination.getId(), origin.getLatitude(), origin.getLongitude(),
+                destination.getLatitude(), destination.getLongitude(), matrix.getTime(from, to), matrix.getDistance(from, to), deliveredUnits);
+    }
+}
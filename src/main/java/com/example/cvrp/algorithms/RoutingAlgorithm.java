@@ -2,6 +2,7 @@ package com.example.cvrp.algorithms;
 
 import com.example.cvrp.dto.RouteLeg;
 import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
 import java.util.List;
 
 public interface RoutingAlgorithm {
@@ -10,6 +11,12 @@ public interface RoutingAlgorithm {
 
     List<RouteLeg> calculateRoute(List<Address> addresses, Long vehicleCapacity);
 
+    // Solves over a matrix that was filled before the algorithm starts; node 0 is the depot
+    List<RouteLeg> calculateRoute(DistanceMatrix matrix, long vehicleCapacity);
+
+    // The matrix calculateRoute(depot, addresses, ...) would solve on, filled from the algorithm's own cost source
+    DistanceMatrix buildDistanceMatrix(Address depot, List<Address> addresses);
+
 
     //List<RouteLeg> calculateRoute(Address depot, List<Address> addresses, long vehicleCapacity);
 
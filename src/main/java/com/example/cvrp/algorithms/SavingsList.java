@@ -0,0 +1,162 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Clarke-Wright savings s(a, b) = t(0, a) + t(0, b) - t(a, b) packed into primitive longs, 8 bytes per pair.
+ * The upper 32 bits hold the saving as an order-preserving float key and the lower 32 bits the pair a * size + b,
+ * so sorting the plain long[] ascending yields the savings from largest to smallest without any comparator.
+ * Large instances can use a granular list that only pairs every customer with its k nearest neighbours,
+ * which keeps the list at O(n * k) entries instead of n(n-1)/2.
+ */
+public final class SavingsList {
+
+    // Largest matrix for which a pair index a * size + b still fits in 32 unsigned bits
+    public static final int MAX_SIZE = 65535;
+
+    // Below this many pairs the savings are computed and sorted on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    public static final int DEFAULT_GRANULAR_NEIGHBORS = 30;
+    public static final int DEFAULT_GRANULAR_MIN_SIZE = 200;
+
+    private SavingsList() {
+    }
+
+    /**
+     * Savings candidates for the matrix: the granular list once there are at least minSize customers,
+     * otherwise every pair.
+     *
+     * @param neighbors nearest neighbours per customer in granular mode, 0 always uses the full list
+     */
+    public static long[] candidates(DistanceMatrix matrix, int neighbors, int minSize) {
+        int customers = matrix.size() - 1;
+        if (neighbors <= 0 || customers < minSize || neighbors >= customers - 1) {
+            return allPairs(matrix);
+        }
+        return granular(matrix, neighbors);
+    }
+
+    // Every customer pair a < b, sorted by descending saving
+    public static long[] allPairs(DistanceMatrix matrix) {
+        int size = checkSize(matrix);
+        long pairCount = (long) (size - 1) * (size - 2) / 2;
+        if (pairCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many address pairs for a full savings list: " + pairCount);
+        }
+
+        long[] savings = new long[(int) pairCount];
+        IntStream rows = IntStream.range(1, size);
+        if (pairCount >= PARALLEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        rows.forEach(a -> {
+            // Row a starts after the pairs of rows 1..a-1, which hold size-2, size-3, ... pairs
+            int offset = (int) ((long) (a - 1) * (size - 1) - (long) (a - 1) * a / 2);
+            for (int b = a + 1; b < size; b++) {
+                savings[offset + b - a - 1] = pack(saving(matrix, a, b), pairIndex(a, b, size));
+            }
+        });
+
+        sort(savings);
+        return savings;
+    }
+
+    // Pairs of every customer with its k nearest customers by travel time, without duplicates, sorted by descending saving
+    public static long[] granular(DistanceMatrix matrix, int k) {
+        int size = checkSize(matrix);
+        int neighbors = Math.min(k, size - 2);
+        if (neighbors <= 0) {
+            return new long[0];
+        }
+        long candidateCount = (long) (size - 1) * neighbors;
+        if (candidateCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many address pairs for a granular savings list: " + candidateCount);
+        }
+
+        long[] savings = new long[(int) candidateCount];
+        IntStream rows = IntStream.range(1, size);
+        if (candidateCount >= PARALLEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        rows.forEach(a -> {
+            int[] nearest = NeighborLists.nearest(matrix, a, neighbors);
+            int offset = (a - 1) * neighbors;
+            for (int j = 0; j < neighbors; j++) {
+                // Store each pair with the smaller position first, so a pair found from both sides packs to the same value
+                int b = nearest[j];
+                int first = Math.min(a, b);
+                int second = Math.max(a, b);
+                savings[offset + j] = pack(saving(matrix, first, second), pairIndex(first, second, size));
+            }
+        });
+
+        sort(savings);
+        return unique(savings);
+    }
+
+    // Drops repeated values from a sorted array
+    private static long[] unique(long[] sorted) {
+        if (sorted.length == 0) {
+            return sorted;
+        }
+        int count = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    public static void sort(long[] savings) {
+        if (savings.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(savings);
+        } else {
+            Arrays.sort(savings);
+        }
+    }
+
+    public static float saving(DistanceMatrix matrix, int a, int b) {
+        // Prioritize time savings
+        float saving = (float) (matrix.getTime(0, a) + matrix.getTime(0, b) - matrix.getTime(a, b));
+        return Float.isNaN(saving) ? Float.NEGATIVE_INFINITY : saving;
+    }
+
+    // Kept as unsigned 32 bits, so it may look negative as an int
+    public static int pairIndex(int a, int b, int size) {
+        return (int) ((long) a * size + b);
+    }
+
+    public static long pack(float saving, int pairIndex) {
+        int bits = Float.floatToIntBits(saving);
+        int ascending = bits ^ ((bits >> 31) | Integer.MIN_VALUE); // Unsigned key in ascending float order
+        int descending = ~ascending ^ Integer.MIN_VALUE;            // Signed key in descending float order
+        return ((long) descending << 32) | (pairIndex & 0xFFFFFFFFL);
+    }
+
+    // The saving a packed entry was created from
+    public static float value(long packed) {
+        int ascending = ~((int) (packed >> 32) ^ Integer.MIN_VALUE);
+        int bits = ascending < 0 ? ascending ^ Integer.MIN_VALUE : ~ascending;
+        return Float.intBitsToFloat(bits);
+    }
+
+    public static int first(long packed, int size) {
+        return (int) ((packed & 0xFFFFFFFFL) / size);
+    }
+
+    public static int second(long packed, int size) {
+        return (int) ((packed & 0xFFFFFFFFL) % size);
+    }
+
+    private static int checkSize(DistanceMatrix matrix) {
+        if (matrix.size() > MAX_SIZE) {
+            throw new IllegalArgumentException("Savings list supports at most " + MAX_SIZE + " addresses, got " + matrix.size());
+        }
+        return matrix.size();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget, cancellation flag and best-so-far solution of one solve. Anytime algorithms check shouldStop() between
+ * batches of iterations and offer every new best tour, which another thread can read at any time through
+ * getBestRoute(). A tour is only split into route legs when it is read, so offering one costs a single copy.
+ * Without a budget the algorithms run their normal schedule and the context only records progress.
+ * <p>
+ * All mutable state of a solve lives here or in locals of the algorithm, never in the algorithm instance, so one
+ * instance can serve any number of concurrent solves.
+ */
+public class SolveContext {
+
+    private final long startNanos = System.nanoTime();
+    private final long deadlineNanos;
+    private final long maxIterations;
+    private final AtomicLong iterations = new AtomicLong();
+    private volatile boolean cancelled;
+
+    // Annealing schedule the solve used, recorded with the result
+    private volatile Double initialTemperature;
+    private volatile Double coolingRate;
+
+    // Best solution so far, either a giant tour that is split on demand or the final route legs
+    private DistanceMatrix matrix;
+    private long vehicleCapacity;
+    private int[] bestTour;
+    private double bestEnergy = Double.POSITIVE_INFINITY;
+    private List<RouteLeg> bestRoute;
+
+    // No budget, the algorithms decide when they are done
+    public SolveContext() {
+        this(0, 0);
+    }
+
+    /**
+     * @param budgetMillis  wall-clock budget from now, 0 for none
+     * @param maxIterations iteration budget, 0 for none
+     */
+    public SolveContext(long budgetMillis, long maxIterations) {
+        this.deadlineNanos = budgetMillis > 0 ? startNanos + budgetMillis * 1_000_000 : Long.MAX_VALUE;
+        this.maxIterations = maxIterations;
+    }
+
+    // Whether the search should keep going until the budget is used up instead of stopping when cooled down
+    public boolean hasBudget() {
+        return deadlineNanos != Long.MAX_VALUE || maxIterations > 0;
+    }
+
+    public boolean shouldStop() {
+        return cancelled
+                || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0)
+                || (maxIterations > 0 && iterations.get() >= maxIterations);
+    }
+
+    // Asks the search to stop at its next check, it then returns its best solution so far
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void addIterations(long count) {
+        iterations.addAndGet(count);
+    }
+
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    public void recordSchedule(double initialTemperature, double coolingRate) {
+        this.initialTemperature = initialTemperature;
+        this.coolingRate = coolingRate;
+    }
+
+    // Null unless the algorithm anneals
+    public Double getInitialTemperature() {
+        return initialTemperature;
+    }
+
+    public Double getCoolingRate() {
+        return coolingRate;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Records the tour if its energy beats the best one offered so far. Energies are only compared with each other,
+     * so one solve must always offer the same kind, e.g. the split cost or the bare tour time.
+     */
+    public synchronized void offerTour(DistanceMatrix matrix, int[] tour, long vehicleCapacity, double energy) {
+        if (bestTour != null && !(energy < bestEnergy)) {
+            return;
+        }
+        this.matrix = matrix;
+        this.vehicleCapacity = vehicleCapacity;
+        this.bestTour = tour.clone();
+        this.bestEnergy = energy;
+        this.bestRoute = null;
+    }
+
+    // The final route of a solve replaces whatever was offered before
+    public synchronized void complete(List<RouteLeg> route) {
+        this.bestRoute = route;
+        this.bestTour = null;
+        this.bestEnergy = Double.NEGATIVE_INFINITY;
+    }
+
+    // Best route so far, empty until the algorithm has offered something
+    public synchronized List<RouteLeg> getBestRoute() {
+        if (bestRoute == null && bestTour != null) {
+            bestRoute = Split.toRouteLegs(matrix, bestTour, vehicleCapacity);
+        }
+        return bestRoute != null ? bestRoute : List.of();
+    }
+
+    /**
+     * Runs the algorithm on the matrix under this context. Anytime algorithms search within the budget and report
+     * progress, any other algorithm runs to completion and only its final route is reported.
+     */
+    public List<RouteLeg> solve(RoutingAlgorithm algorithm, DistanceMatrix matrix, long vehicleCapacity) {
+        List<RouteLeg> route = algorithm instanceof AnytimeAlgorithm
+                ? ((AnytimeAlgorithm) algorithm).calculateRoute(matrix, vehicleCapacity, this)
+                : algorithm.calculateRoute(matrix, vehicleCapacity);
+        complete(route);
+        return route;
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static 2-d tree over the coordinates of the matrix positions, with k-nearest and radius queries and deletion.
+ * Latitude and longitude are projected to metres around the mean latitude (equirectangular), which is accurate
+ * enough to rank nearby addresses of one city or region. Points are never moved once the tree is built:
+ * deleting one only marks it and decrements the live counts on its path, so empty subtrees are pruned.
+ * The tree is implicit in arrays: the node of a subrange [lo, hi) is its middle slot.
+ */
+public class SpatialIndex {
+
+    private static final double METRES_PER_DEGREE = 111_320.0;
+
+    private final int[] positions;  // Matrix position stored in each slot
+    private final int[] slotOf;     // Slot of each matrix position, -1 if not indexed
+    private final double[] x;       // Projected coordinates by slot
+    private final double[] y;
+    private final boolean[] deleted;
+    private final int[] liveCount;  // Live points in the subtree whose node is the slot
+    private final double cosLatitude;
+
+    // Indexes every customer of the matrix, the depot (position 0) is left out
+    public SpatialIndex(DistanceMatrix matrix) {
+        int count = matrix.size() - 1;
+        double latitudeSum = 0.0;
+        for (int i = 1; i < matrix.size(); i++) {
+            latitudeSum += matrix.getAddress(i).getLatitude();
+        }
+        this.cosLatitude = Math.cos(Math.toRadians(count > 0 ? latitudeSum / count : 0.0));
+
+        positions = new int[count];
+        slotOf = new int[matrix.size()];
+        x = new double[count];
+        y = new double[count];
+        deleted = new boolean[count];
+        liveCount = new int[count];
+
+        double[] pointX = new double[matrix.size()];
+        double[] pointY = new double[matrix.size()];
+        for (int i = 0; i < matrix.size(); i++) {
+            Address address = matrix.getAddress(i);
+            pointX[i] = projectX(address.getLongitude());
+            pointY[i] = projectY(address.getLatitude());
+            slotOf[i] = -1;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            positions[slot] = slot + 1;
+        }
+
+        build(0, count, 0, pointX, pointY);
+        for (int slot = 0; slot < count; slot++) {
+            slotOf[positions[slot]] = slot;
+            x[slot] = pointX[positions[slot]];
+            y[slot] = pointY[positions[slot]];
+        }
+    }
+
+    public int size() {
+        return positions.length == 0 ? 0 : liveCount[positions.length / 2];
+    }
+
+    public boolean contains(int position) {
+        int slot = position < slotOf.length ? slotOf[position] : -1;
+        return slot >= 0 && !deleted[slot];
+    }
+
+    // Removes the position from all further query results
+    public void delete(int position) {
+        if (!contains(position)) {
+            return;
+        }
+        int slot = slotOf[position];
+        deleted[slot] = true;
+
+        // The implicit tree is walked by slot number alone, no coordinate comparison is needed
+        int lo = 0;
+        int hi = positions.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            liveCount[mid]--;
+            if (slot == mid) {
+                return;
+            }
+            if (slot < mid) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+    }
+
+    /**
+     * The k live positions closest to the address, nearest first.
+     *
+     * @return the number of positions written to result, less than k only if fewer positions are left
+     */
+    public int nearest(Address address, int k, int[] result) {
+        int limit = Math.min(k, size());
+        if (limit <= 0) {
+            return 0;
+        }
+        double[] heapDistances = new double[limit];
+        int[] heapSlots = new int[limit];
+        int heapSize = nearest(0, positions.length, 0, projectX(address.getLongitude()), projectY(address.getLatitude()),
+                limit, heapDistances, heapSlots, 0);
+
+        // Pop the max-heap from the back so the nearest position ends up first
+        for (int last = heapSize - 1; last >= 0; last--) {
+            result[last] = positions[heapSlots[0]];
+            heapSlots[0] = heapSlots[last];
+            heapDistances[0] = heapDistances[last];
+            siftDown(heapDistances, heapSlots, last);
+        }
+        return heapSize;
+    }
+
+    // Every live position within the given straight-line distance of the address, in no particular order
+    public List<Integer> withinRadius(Address address, double radiusMetres) {
+        List<Integer> result = new ArrayList<>();
+        withinRadius(0, positions.length, 0, projectX(address.getLongitude()), projectY(address.getLatitude()),
+                radiusMetres * radiusMetres, result);
+        return result;
+    }
+
+    private void build(int lo, int hi, int depth, double[] pointX, double[] pointY) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double[] axis = depth % 2 == 0 ? pointX : pointY;
+        select(lo, hi - 1, mid, axis);
+        liveCount[mid] = hi - lo;
+        build(lo, mid, depth + 1, pointX, pointY);
+        build(mid + 1, hi, depth + 1, pointX, pointY);
+    }
+
+    // Quickselect on positions[lo..hi] so that slot k holds the median along the axis
+    private void select(int lo, int hi, int k, double[] axis) {
+        while (lo < hi) {
+            double pivot = axis[positions[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (axis[positions[i]] < pivot) {
+                    i++;
+                }
+                while (axis[positions[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = positions[i];
+                    positions[i] = positions[j];
+                    positions[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int nearest(int lo, int hi, int depth, double qx, double qy, int k,
+                        double[] heapDistances, int[] heapSlots, int heapSize) {
+        if (hi - lo <= 0) {
+            return heapSize;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (liveCount[mid] == 0) {
+            return heapSize;
+        }
+
+        if (!deleted[mid]) {
+            double dx = x[mid] - qx;
+            double dy = y[mid] - qy;
+            double distance = dx * dx + dy * dy;
+            if (heapSize < k) {
+                heapSize = siftUp(heapDistances, heapSlots, heapSize, distance, mid);
+            } else if (distance < heapDistances[0]) {
+                heapDistances[0] = distance;
+                heapSlots[0] = mid;
+                siftDown(heapDistances, heapSlots, heapSize);
+            }
+        }
+
+        // Search the side of the query point first, the other side only if it can still hold a closer point
+        double delta = depth % 2 == 0 ? qx - x[mid] : qy - y[mid];
+        boolean leftFirst = delta < 0;
+        heapSize = leftFirst
+                ? nearest(lo, mid, depth + 1, qx, qy, k, heapDistances, heapSlots, heapSize)
+                : nearest(mid + 1, hi, depth + 1, qx, qy, k, heapDistances, heapSlots, heapSize);
+        if (heapSize < k || delta * delta < heapDistances[0]) {
+            heapSize = leftFirst
+                    ? nearest(mid + 1, hi, depth + 1, qx, qy, k, heapDistances, heapSlots, heapSize)
+                    : nearest(lo, mid, depth + 1, qx, qy, k, heapDistances, heapSlots, heapSize);
+        }
+        return heapSize;
+    }
+
+    private void withinRadius(int lo, int hi, int depth, double qx, double qy, double radiusSquared, List<Integer> result) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (liveCount[mid] == 0) {
+            return;
+        }
+        double dx = x[mid] - qx;
+        double dy = y[mid] - qy;
+        if (!deleted[mid] && dx * dx + dy * dy <= radiusSquared) {
+            result.add(positions[mid]);
+        }
+        double delta = depth % 2 == 0 ? qx - x[mid] : qy - y[mid];
+        if (delta <= 0 || delta * delta <= radiusSquared) {
+            withinRadius(lo, mid, depth + 1, qx, qy, radiusSquared, result);
+        }
+        if (delta >= 0 || delta * delta <= radiusSquared) {
+            withinRadius(mid + 1, hi, depth + 1, qx, qy, radiusSquared, result);
+        }
+    }
+
+    // Max-heap on the squared distance, the farthest of the k best candidates is at the top
+    private static int siftUp(double[] heapDistances, int[] heapSlots, int heapSize, double distance, int slot) {
+        int child = heapSize;
+        while (child > 0) {
+            int parent = (child - 1) / 2;
+            if (heapDistances[parent] >= distance) {
+                break;
+            }
+            heapDistances[child] = heapDistances[parent];
+            heapSlots[child] = heapSlots[parent];
+            child = parent;
+        }
+        heapDistances[child] = distance;
+        heapSlots[child] = slot;
+        return heapSize + 1;
+    }
+
+    private static void siftDown(double[] heapDistances, int[] heapSlots, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        double distance = heapDistances[0];
+        int slot = heapSlots[0];
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+                child++;
+            }
+            if (heapDistances[child] <= distance) {
+                break;
+            }
+            heapDistances[parent] = heapDistances[child];
+            heapSlots[parent] = heapSlots[child];
+            parent = child;
+        }
+        heapDistances[parent] = distance;
+        heapSlots[parent] = slot;
+    }
+
+    private double projectX(double longitude) {
+        return longitude * METRES_PER_DEGREE * cosLatitude;
+    }
+
+    private static double projectY(double latitude) {
+        return latitude * METRES_PER_DEGREE;
+    }
+}
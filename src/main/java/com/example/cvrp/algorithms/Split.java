@@ -0,0 +1,146 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Optimal split of a giant tour into capacity-feasible trips (Bellman shortest path over the tour order).
+ * Every trip starts and ends at the depot and serves a contiguous part of the tour. A customer whose demand
+ * exceeds the vehicle capacity first gets dedicated full-truck trips, the remainder is split with the others.
+ * Customers without demand are not visited. The depot (position 0) never has demand, whatever its address says.
+ * An instance keeps its buffers, so cost(...) allocates nothing and can be used as a search energy.
+ * It runs in O(n * k), where k is the largest number of customers that fit in one trip.
+ */
+public class Split {
+
+    private final DistanceMatrix matrix;
+    private final long vehicleCapacity;
+    private final long[] residualDemands;
+    private final long[] fullTrips;
+    private final double fullTripTime;
+
+    private final int[] customers;
+    private final double[] bestTime;
+    private final int[] predecessor;
+
+    public Split(DistanceMatrix matrix, long vehicleCapacity) {
+        if (vehicleCapacity <= 0) {
+            throw new IllegalArgumentException("Vehicle capacity must be positive: " + vehicleCapacity);
+        }
+        this.matrix = matrix;
+        this.vehicleCapacity = vehicleCapacity;
+
+        int size = matrix.size();
+        this.residualDemands = new long[size];
+        this.fullTrips = new long[size];
+        double fullTripTime = 0.0;
+        for (int i = 1; i < size; i++) {
+            Long unit = matrix.getAddress(i).getUnit();
+            long demand = unit != null ? unit : 0L;
+            if (demand > vehicleCapacity) {
+                fullTrips[i] = (demand - 1) / vehicleCapacity;
+                fullTripTime += fullTrips[i] * (matrix.getTime(0, i) + matrix.getTime(i, 0));
+            }
+            residualDemands[i] = demand - fullTrips[i] * vehicleCapacity;
+        }
+        this.fullTripTime = fullTripTime;
+
+        this.customers = new int[size];
+        this.bestTime = new double[size + 1];
+        this.predecessor = new int[size + 1];
+    }
+
+    // Demand left for a customer once its dedicated full-truck trips are taken off, never more than the capacity
+    public long getResidualDemand(int position) {
+        return residualDemands[position];
+    }
+
+    public long getFullTrips(int position) {
+        return fullTrips[position];
+    }
+
+    // Converts a giant tour of matrix positions into RouteLegs, the depot (position 0) may appear anywhere in the tour
+    public static List<RouteLeg> toRouteLegs(DistanceMatrix matrix, int[] tour, long vehicleCapacity) {
+        return new Split(matrix, vehicleCapacity).plan(tour).toRouteLegs(matrix);
+    }
+
+    // Travel time of the best split of the tour, including the dedicated full-truck trips
+    public double cost(int[] tour) {
+        return fullTripTime + solve(tour);
+    }
+
+    public RoutePlan plan(int[] tour) {
+        solve(tour);
+        int count = collectCustomers(tour);
+
+        // Walk the predecessor chain back from the end to find where each trip starts
+        List<int[]> bounds = new ArrayList<>();
+        for (int end = count; end > 0; end = predecessor[end]) {
+            bounds.add(new int[]{predecessor[end], end});
+        }
+        Collections.reverse(bounds);
+
+        RoutePlan plan = new RoutePlan();
+        for (int[] bound : bounds) {
+            for (int k = bound[0]; k < bound[1]; k++) {
+                int customer = customers[k];
+                for (long trip = 0; trip < fullTrips[customer]; trip++) {
+                    plan.addTrip(new int[]{customer}, new long[]{vehicleCapacity});
+                }
+            }
+            int[] stops = new int[bound[1] - bound[0]];
+            long[] units = new long[stops.length];
+            for (int k = 0; k < stops.length; k++) {
+                stops[k] = customers[bound[0] + k];
+                units[k] = residualDemands[stops[k]];
+            }
+            plan.addTrip(stops, units);
+        }
+        return plan;
+    }
+
+    private double solve(int[] tour) {
+        int count = collectCustomers(tour);
+        bestTime[0] = 0.0;
+        for (int j = 1; j <= count; j++) {
+            bestTime[j] = Double.POSITIVE_INFINITY;
+            predecessor[j] = j - 1; // A single-customer trip always fits
+        }
+
+        for (int i = 0; i < count; i++) {
+            // Trip from the depot through customers i..j-1 and back
+            long load = 0;
+            double pathTime = 0.0;
+            int previous = 0;
+            for (int j = i + 1; j <= count; j++) {
+                int customer = customers[j - 1];
+                load += residualDemands[customer];
+                if (load > vehicleCapacity) {
+                    break;
+                }
+                pathTime += matrix.getTime(previous, customer);
+                previous = customer;
+                double tripTime = pathTime + matrix.getTime(customer, 0);
+                if (bestTime[i] + tripTime < bestTime[j]) {
+                    bestTime[j] = bestTime[i] + tripTime;
+                    predecessor[j] = i;
+                }
+            }
+        }
+        return bestTime[count];
+    }
+
+    private int collectCustomers(int[] tour) {
+        int count = 0;
+        for (int position : tour) {
+            if (position != 0 && residualDemands[position] > 0) {
+                customers[count++] = position;
+            }
+        }
+        return count;
+    }
+}
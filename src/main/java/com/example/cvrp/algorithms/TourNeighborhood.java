@@ -0,0 +1,200 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+import java.util.Random;
+
+/**
+ * Swap / reversal / insertion moves on a giant tour of matrix positions, shared by the simulated annealing algorithms.
+ * tour[0] is always the depot and the tour closes back to it. A move is first proposed, which only computes its
+ * travel time delta from the edges it would change, and is applied to the tour only once it has been accepted.
+ * Travel times may be asymmetric, so reversals use prefix sums of the forward and backward edge times along the
+ * current tour. They are rebuilt lazily after the tour has changed.
+ * Moves work in place on the caller's int[] and allocate nothing, an applied move can be reverted with {@link #undo()}.
+ */
+public class TourNeighborhood {
+
+    private static final int SWAP = 0;
+    private static final int REVERSAL = 1;
+    private static final int INSERTION = 2;
+
+    private final DistanceMatrix matrix;
+    private final int[] tour;
+    private final int length;
+    private final double[] forwardTimes;
+    private final double[] backwardTimes;
+    private boolean prefixSumsValid;
+
+    private int moveType;
+    private int first;
+    private int second;
+
+    public TourNeighborhood(DistanceMatrix matrix, int[] tour) {
+        this.matrix = matrix;
+        this.tour = tour;
+        this.length = tour.length;
+        this.forwardTimes = new double[length];
+        this.backwardTimes = new double[length];
+    }
+
+    public int[] getTour() {
+        return tour;
+    }
+
+    // Must be called after the tour array has been changed from outside
+    public void invalidate() {
+        prefixSumsValid = false;
+    }
+
+    // Travel time of the whole tour including the final return to the depot
+    public double totalTime() {
+        double totalTravelTime = 0.0;
+        for (int i = 0; i < length; i++) {
+            totalTravelTime += matrix.getTime(tour[i], next(i));
+        }
+        return totalTravelTime;
+    }
+
+    /**
+     * Picks a random move (0: Swap, 1: Reversal, 2: Insertion) and returns how much it would change the tour's
+     * travel time. The tour itself is left untouched until {@link #apply()} is called.
+     */
+    public double propose(Random random) {
+        moveType = random.nextInt(3);
+        switch (moveType) {
+            case SWAP:
+                first = 1 + random.nextInt(length - 1);
+                second = 1 + random.nextInt(length - 1);
+                while (first == second) {
+                    second = 1 + random.nextInt(length - 1);
+                }
+                return swapDelta(Math.min(first, second), Math.max(first, second));
+
+            case REVERSAL:
+                first = 1 + random.nextInt(length - 2);
+                second = first + random.nextInt(length - first);
+                return reversalDelta(first, second);
+
+            default:
+                first = 1 + random.nextInt(length - 1);
+                second = 1 + random.nextInt(length - 2);
+                return insertionDelta(first, second);
+        }
+    }
+
+    // Applies the last proposed move in place
+    public void apply() {
+        move(first, second);
+    }
+
+    // Reverts the last applied move, for callers that evaluate a move on the modified tour before deciding
+    public void undo() {
+        if (moveType == INSERTION) {
+            move(second, first);
+        } else {
+            move(first, second);
+        }
+    }
+
+    // Swaps and reversals are their own inverse, an insertion is undone by moving the address back
+    private void move(int from, int to) {
+        switch (moveType) {
+            case SWAP:
+                int swapped = tour[from];
+                tour[from] = tour[to];
+                tour[to] = swapped;
+                break;
+
+            case REVERSAL:
+                for (int i = from, j = to; i < j; i++, j--) {
+                    int temp = tour[i];
+                    tour[i] = tour[j];
+                    tour[j] = temp;
+                }
+                break;
+
+            case INSERTION:
+                int address = tour[from];
+                if (from < to) {
+                    System.arraycopy(tour, from + 1, tour, from, to - from);
+                } else {
+                    System.arraycopy(tour, to, tour, to + 1, from - to);
+                }
+                tour[to] = address;
+                break;
+        }
+        prefixSumsValid = false;
+    }
+
+    // Positions i < j, adjacent positions share an edge so they are handled separately
+    private double swapDelta(int i, int j) {
+        int a = tour[i];
+        int b = tour[j];
+        int beforeA = tour[i - 1];
+        int afterB = next(j);
+
+        if (j == i + 1) {
+            return time(beforeA, b) + time(b, a) + time(a, afterB)
+                    - time(beforeA, a) - time(a, b) - time(b, afterB);
+        }
+
+        int afterA = tour[i + 1];
+        int beforeB = tour[j - 1];
+        return time(beforeA, b) + time(b, afterA) + time(beforeB, a) + time(a, afterB)
+                - time(beforeA, a) - time(a, afterA) - time(beforeB, b) - time(b, afterB);
+    }
+
+    private double reversalDelta(int start, int end) {
+        if (start == end) {
+            return 0.0;
+        }
+        ensurePrefixSums();
+        int before = tour[start - 1];
+        int after = next(end);
+        double forward = forwardTimes[end] - forwardTimes[start];
+        double backward = backwardTimes[end] - backwardTimes[start];
+        return time(before, tour[end]) + backward + time(tour[start], after)
+                - time(before, tour[start]) - forward - time(tour[end], after);
+    }
+
+    // The address at removeIndex ends up at insertIndex, everything in between shifts by one
+    private double insertionDelta(int removeIndex, int insertIndex) {
+        if (removeIndex == insertIndex) {
+            return 0.0;
+        }
+        int address = tour[removeIndex];
+        int before = tour[removeIndex - 1];
+        int after = next(removeIndex);
+        double removal = time(before, after) - time(before, address) - time(address, after);
+
+        if (removeIndex < insertIndex) {
+            int left = tour[insertIndex];
+            int right = next(insertIndex);
+            return removal + time(left, address) + time(address, right) - time(left, right);
+        }
+        int left = tour[insertIndex - 1];
+        int right = tour[insertIndex];
+        return removal + time(left, address) + time(address, right) - time(left, right);
+    }
+
+    private void ensurePrefixSums() {
+        if (prefixSumsValid) {
+            return;
+        }
+        forwardTimes[0] = 0.0;
+        backwardTimes[0] = 0.0;
+        for (int i = 1; i < length; i++) {
+            forwardTimes[i] = forwardTimes[i - 1] + time(tour[i - 1], tour[i]);
+            backwardTimes[i] = backwardTimes[i - 1] + time(tour[i], tour[i - 1]);
+        }
+        prefixSumsValid = true;
+    }
+
+    private int next(int position) {
+        return position + 1 < length ? tour[position + 1] : 0;
+    }
+
+    private double time(int from, int to) {
+        return matrix.getTime(from, to);
+    }
+}
@@ -1,15 +1,21 @@
 package com.example.cvrp.controller;
 
+import com.example.cvrp.dto.RouteJobStatus;
 import com.example.cvrp.dto.RouteLeg;
 import com.example.cvrp.model.Address;
 import com.example.cvrp.service.AddressService;
 import com.example.cvrp.service.AddressServiceImp;
 import com.example.cvrp.dto.RouteRequest;
+import com.example.cvrp.service.RouteJob;
+import com.example.cvrp.service.RouteJobService;
 import com.example.cvrp.service.RoutingServiceImp;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -22,13 +28,17 @@ public class RoutingController {
     private AddressService addressService;
     private AddressServiceImp addressServiceImp;
     private RoutingServiceImp routingServiceImp;
+    private RouteJobService routeJobService;
 
+    // Runs as a route job, the request thread is released while the job waits and solves.
+    // If the job outlives the response timeout, the job status is returned with 202 so the client can poll it
     @PostMapping("/calculate-route")
-    public ResponseEntity<?> calculateRoute(@RequestBody RouteRequest routeRequest) {
+    public DeferredResult<ResponseEntity<?>> calculateRoute(@RequestBody RouteRequest routeRequest) {
         System.out.println("Algorithm Type: " + routeRequest.getAlgorithm());
         System.out.println("Depot ID: " + routeRequest.getDepotId());
         System.out.println("Address IDs: " + routeRequest.getAddressList());
         System.out.println("Vehicle Capacity: " + routeRequest.getCapacity());
+        System.out.println("Cost Mode: " + routeRequest.getCostMode());
 
         Address depot = addressService.findAddressById(routeRequest.getDepotId());
         System.out.println("Depot found: " + depot);
@@ -37,9 +47,20 @@ public class RoutingController {
         System.out.println("Number of addresses fetched: " + addresses.size());
         addresses.forEach(address -> System.out.println("Fetched address ID: " + address.getId()));
 
-        List<RouteLeg> routeLegs = routingServiceImp.calculateRoute(routeRequest.getAlgorithm(), depot, addresses, routeRequest.getCapacity());
-        System.out.println("Number of route legs calculated: " + routeLegs.size() + "\n\n");
-        return ResponseEntity.ok(routeLegs);
+        RouteJob job = routeJobService.submit(routeRequest.getAlgorithm(), depot, addresses, routeRequest.getCapacity(),
+                routeRequest.getCostMode(), routeRequest.getBudgetMillis(), routeRequest.getMaxIterations());
+
+        DeferredResult<ResponseEntity<?>> response = new DeferredResult<>(routeJobService.getResponseTimeoutMillis());
+        response.onTimeout(() -> response.setResult(new ResponseEntity<>(job.toStatus(false), HttpStatus.ACCEPTED)));
+        job.getResult().whenComplete((routeLegs, error) -> {
+            if (error != null) {
+                response.setErrorResult(error);
+            } else {
+                System.out.println("Number of route legs calculated: " + routeLegs.size() + "\n\n");
+                response.setResult(ResponseEntity.ok(routeLegs));
+            }
+        });
+        return response;
     }
 
     @GetMapping("/calculateRoute/{algorithmType}/{addressLimit}/{vehicleCapacity}")
@@ -51,4 +72,32 @@ public class RoutingController {
         List<RouteLeg> route = routingServiceImp.calculateOptimalRoute(algorithmType, addressLimit, vehicleCapacity);
         return ResponseEntity.ok(route);
     }
+
+    // Starts the calculation in the background, the job can then be polled for its best route so far
+    @PostMapping("/jobs")
+    public ResponseEntity<RouteJobStatus> startJob(@RequestBody RouteRequest routeRequest) {
+        Address depot = addressService.findAddressById(routeRequest.getDepotId());
+        List<Address> addresses = addressServiceImp.getAddressesByIds(routeRequest.getAddressList());
+
+        RouteJob job = routeJobService.submit(routeRequest.getAlgorithm(), depot, addresses, routeRequest.getCapacity(),
+                routeRequest.getCostMode(), routeRequest.getBudgetMillis(), routeRequest.getMaxIterations());
+        return new ResponseEntity<>(job.toStatus(), HttpStatus.ACCEPTED);
+    }
+
+    // Server-sent "progress" events while the job runs, then a "result" event with the route
+    @GetMapping("/jobs/{jobId}/events")
+    public SseEmitter streamJob(@PathVariable String jobId) {
+        return routeJobService.subscribe(jobId);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<RouteJobStatus> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(routeJobService.getJob(jobId).toStatus());
+    }
+
+    // Stops the search early, the job finishes with the best route found until then
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<RouteJobStatus> cancelJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(routeJobService.cancel(jobId).toStatus());
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.cvrp.dto;
+
+// Which travel costs a route is calculated with
+public enum CostMode {
+    // Real times and distances for every pair the algorithm looks at
+    EXACT,
+    // Great-circle estimates only, nothing is fetched
+    SURROGATE,
+    // Great-circle estimates during the search, real times and distances only for the edges of the final route
+    // and a small neighbourhood around it, which a local search on the real costs uses for a final polish
+    HYBRID
+}
@@ -0,0 +1,24 @@
+package com.example.cvrp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Snapshot of a route job, the route is the best one found so far while the job is running
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RouteJobStatus {
+    private final String id;
+    private final String algorithm;
+    private final String state;
+    private final long ageMillis;      // Since the job was submitted, queueing included
+    private final long elapsedMillis;  // Of the solve itself
+    private final long iterations;
+    private final double totalTime;
+    private final double totalDistance;
+    private final List<RouteLeg> route;
+    private final String error;
+}
@@ -22,4 +22,15 @@ public class RouteRequest {
     @JsonProperty("vehicleCapacity")
     private long capacity;
 
+    // Optional, EXACT when missing
+    @JsonProperty("costMode")
+    private CostMode costMode;
+
+    // Optional budget of a route job, 0 or missing for none
+    @JsonProperty("budgetMs")
+    private long budgetMillis;
+
+    @JsonProperty("maxIterations")
+    private long maxIterations;
+
 }
@@ -0,0 +1,21 @@
+package com.example.cvrp.exceptions;
+
+// A Distance Matrix API request failed, retryable failures are throttling and transient server errors
+public class DistanceMatrixApiException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public DistanceMatrixApiException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public DistanceMatrixApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.retryable = false;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.cvrp.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The route job queue is full, the client should retry later
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class JobRejectedException extends RuntimeException {
+
+    public JobRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.cvrp.model;
+
+import com.example.cvrp.dto.TimeDistance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Dense travel time / distance matrix for a single solve.
+ * Node 0 is always the depot, nodes 1..size-1 are the customers in the order they were given.
+ * Values are stored row-major in flat primitive arrays so the algorithms can look up an edge
+ * by node position without building keys or boxing. Unknown entries hold NaN.
+ * Entries can be marked as estimates, e.g. coordinate-based stand-ins for pairs the provider could not answer,
+ * so they are used for the solve but never cached as real costs.
+ * All arrays are allocated up front, so providers may fill disjoint entries from several threads at once;
+ * their writes are visible to the caller once it has joined the futures that made them.
+ */
+public class DistanceMatrix {
+
+    private final List<Address> nodes;
+    private final Map<Long, Integer> indexById;
+    private final int size;
+    private final double[] times;
+    private final double[] distances;
+    private final boolean[] estimated;
+
+    public DistanceMatrix(Address depot, List<Address> addresses) {
+        this.nodes = new ArrayList<>(addresses.size() + 1);
+        this.nodes.add(depot);
+        for (Address address : addresses) {
+            if (!isSameAddress(address, depot)) {
+                this.nodes.add(address);
+            }
+        }
+        this.size = nodes.size();
+
+        this.indexById = new HashMap<>();
+        for (int i = size - 1; i >= 0; i--) {
+            Long id = nodes.get(i).getId();
+            if (id != null) {
+                indexById.put(id, i);
+            }
+        }
+
+        this.times = new double[size * size];
+        this.distances = new double[size * size];
+        this.estimated = new boolean[size * size];
+        Arrays.fill(times, Double.NaN);
+        Arrays.fill(distances, Double.NaN);
+        for (int i = 0; i < size; i++) {
+            times[i * size + i] = 0.0;
+            distances[i * size + i] = 0.0;
+        }
+    }
+
+    // Fills every off-diagonal entry with the given pair lookup
+    public static DistanceMatrix build(Address depot, List<Address> addresses,
+                                       BiFunction<Address, Address, TimeDistance> lookup) {
+        DistanceMatrix matrix = new DistanceMatrix(depot, addresses);
+        for (int i = 0; i < matrix.size; i++) {
+            for (int j = 0; j < matrix.size; j++) {
+                if (i != j) {
+                    TimeDistance timeDistance = lookup.apply(matrix.nodes.get(i), matrix.nodes.get(j));
+                    matrix.set(i, j, timeDistance.getTime(), timeDistance.getDistance());
+                }
+            }
+        }
+        return matrix;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Address getDepot() {
+        return nodes.get(0);
+    }
+
+    public Address getAddress(int index) {
+        return nodes.get(index);
+    }
+
+    public List<Address> getAddresses() {
+        return nodes;
+    }
+
+    public double getTime(int from, int to) {
+        return times[from * size + to];
+    }
+
+    public double getDistance(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    public boolean isKnown(int from, int to) {
+        return !Double.isNaN(times[from * size + to]);
+    }
+
+    public void set(int from, int to, double time, double distance) {
+        times[from * size + to] = time;
+        distances[from * size + to] = distance;
+        estimated[from * size + to] = false;
+    }
+
+    public void setEstimate(int from, int to, double time, double distance) {
+        times[from * size + to] = time;
+        distances[from * size + to] = distance;
+        estimated[from * size + to] = true;
+    }
+
+    public boolean isEstimated(int from, int to) {
+        return estimated[from * size + to];
+    }
+
+    // Position of an address in the matrix, or -1 if it is not part of this solve
+    public int indexOf(Address address) {
+        if (address.getId() != null) {
+            Integer index = indexById.get(address.getId());
+            return index != null ? index : -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (nodes.get(i) == address) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Position of the address with this id, or -1 if it is not part of this solve
+    public int indexOf(Long id) {
+        Integer index = id != null ? indexById.get(id) : null;
+        return index != null ? index : -1;
+    }
+
+    // Convenience lookup used when building RouteLegs, not meant for inner loops
+    public TimeDistance getTimeDistance(Address from, Address to) {
+        int i = indexOf(from);
+        int j = indexOf(to);
+        if (i < 0 || j < 0) {
+            throw new IllegalArgumentException("Address is not part of the distance matrix: " + (i < 0 ? from : to));
+        }
+        return new TimeDistance(getTime(i, j), getDistance(i, j));
+    }
+
+    public List<Address> toAddresses(int[] route) {
+        List<Address> addresses = new ArrayList<>(route.length);
+        for (int index : route) {
+            addresses.add(nodes.get(index));
+        }
+        return addresses;
+    }
+
+    private static boolean isSameAddress(Address address, Address depot) {
+        if (address == depot) {
+            return true;
+        }
+        return address.getId() != null && address.getId().equals(depot.getId());
+    }
+}
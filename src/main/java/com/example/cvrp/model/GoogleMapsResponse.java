@@ -10,6 +10,7 @@ import java.util.List;
 public class GoogleMapsResponse {
 
     private List<Row> rows;
+    private String status; // OK, or why the whole request failed, e.g. OVER_QUERY_LIMIT
 
     //Getters and setters
     public List<Row> getRows() {
@@ -20,6 +21,14 @@ public class GoogleMapsResponse {
         this.rows = rows;
     }
 
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
     // Nested classes to match the API response structure
     public static class Row {
         private List<Element> elements;
@@ -37,6 +46,7 @@ public class GoogleMapsResponse {
     public static class Element {
         private Distance distance;
         private Duration duration;
+        private String status; // OK, or e.g. ZERO_RESULTS when there is no route between the pair
 
         //Getters and setters
         public Distance getDistance() {
@@ -54,6 +64,14 @@ public class GoogleMapsResponse {
         public void setDuration(Duration duration) {
             this.duration = duration;
         }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
     }
 
     @Getter
@@ -1,21 +1,37 @@
 package com.example.cvrp.model;
 
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
 @Getter
 @Setter
+@Table(name = "time_distance_entity",
+        uniqueConstraints = @UniqueConstraint(name = "uk_time_distance_origin_destination_id", columnNames = {"origin_id", "destination_id"}),
+        indexes = @Index(name = "idx_time_distance_origin_destination", columnList = "origin, destination"))
 public class TimeDistanceEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    // Address ids of the pair, null only for legacy rows the migration could not resolve
+    @Column(name = "origin_id")
+    private Long originId;
+
+    @Column(name = "destination_id")
+    private Long destinationId;
+
+    // Legacy "lat,lng" keys, kept for rows without address ids
     private String origin;
     private String destination;
     private double time;
@@ -31,4 +47,10 @@ public class TimeDistanceEntity {
         this.time = time;
         this.distance = distance;
     }
+
+    public TimeDistanceEntity(Long originId, Long destinationId, String origin, String destination, double time, double distance) {
+        this(origin, destination, time, distance);
+        this.originId = originId;
+        this.destinationId = destinationId;
+    }
 }
@@ -2,12 +2,28 @@ package com.example.cvrp.repository;
 
 
 import com.example.cvrp.model.TimeDistanceEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TimeDistanceRepository extends JpaRepository<TimeDistanceEntity, Long> {
     Optional<TimeDistanceEntity> findByOriginAndDestination(String origin, String destination);
+
+    // Every cached pair between the given locations in one query, must be consumed inside a transaction
+    Stream<TimeDistanceEntity> streamByOriginInAndDestinationIn(Collection<String> origins, Collection<String> destinations);
+
+    // Uses the unique (origin_id, destination_id) index
+    Optional<TimeDistanceEntity> findByOriginIdAndDestinationId(Long originId, Long destinationId);
+
+    // Every cached pair between the given address ids in one query, must be consumed inside a transaction
+    Stream<TimeDistanceEntity> streamByOriginIdInAndDestinationIdIn(Collection<Long> originIds, Collection<Long> destinationIds);
+
+    // Legacy rows without address ids, paged by primary key for the migration
+    List<TimeDistanceEntity> findByOriginIdIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
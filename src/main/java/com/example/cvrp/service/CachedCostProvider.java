@@ -0,0 +1,34 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+/**
+ * Serves the pairs fetched by earlier solves from the travel cost cache and asks the wrapped provider only for the
+ * missing ones, which are then cached too.
+ */
+public class CachedCostProvider implements CostProvider {
+
+    private final CostProvider costProvider;
+    private final TravelCostCache travelCostCache;
+
+    public CachedCostProvider(CostProvider costProvider, TravelCostCache travelCostCache) {
+        this.costProvider = costProvider;
+        this.travelCostCache = travelCostCache;
+    }
+
+    @Override
+    public int fillDistanceMatrix(DistanceMatrix matrix) {
+        travelCostCache.fill(matrix);
+        int requestCount = costProvider.fillDistanceMatrix(matrix);
+        travelCostCache.putAll(matrix);
+        return requestCount;
+    }
+
+    @Override
+    public int fillEntries(DistanceMatrix matrix, int[] origins, int[] destinations) {
+        travelCostCache.fill(matrix, origins, destinations);
+        int requestCount = costProvider.fillEntries(matrix, origins, destinations);
+        travelCostCache.putAll(matrix, origins, destinations);
+        return requestCount;
+    }
+}
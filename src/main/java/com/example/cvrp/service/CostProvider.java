@@ -0,0 +1,29 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.model.DistanceMatrix;
+
+/**
+ * Source of the travel times and distances a solve runs on. Every algorithm gets its costs through this interface,
+ * so the same code runs on Google Maps (GoogleMapsServiceImp), the stored pairs of the database
+ * (DistanceMatrixServiceImp), coordinate estimates (GeometricCostProvider), or any of them behind the travel cost
+ * cache (CachedCostProvider).
+ */
+public interface CostProvider {
+
+    /**
+     * Fills every unknown off-diagonal entry of the matrix.
+     *
+     * @return the number of remote requests that were needed
+     */
+    int fillDistanceMatrix(DistanceMatrix matrix);
+
+    /**
+     * Fills the entries origins[k] -> destinations[k] that are still unknown, e.g. the legs of a route.
+     * Providers that cannot fetch single entries fill the whole matrix.
+     *
+     * @return the number of remote requests that were needed
+     */
+    default int fillEntries(DistanceMatrix matrix, int[] origins, int[] destinations) {
+        return fillDistanceMatrix(matrix);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.dto.TimeDistance;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Surrogate travel costs computed from the coordinates alone: the great-circle (haversine) distance stretched by
+ * a detour factor for the road network, and a time from a constant average speed.
+ * Every address is turned into a point on the unit sphere once, so the n x n loop takes the straight-line (chord)
+ * length between two points with plain arithmetic and needs only one sqrt and one asin per pair for the arc.
+ * Everything it fills is marked as an estimate in the matrix.
+ */
+@Component
+public class GeometricCostProvider implements CostProvider {
+
+    private static final double EARTH_RADIUS_METRES = 6_371_000.0;
+
+    private final double metresPerSecond;
+    private final double detourFactor;
+
+    public GeometricCostProvider(@Value("${routing.surrogate.speed-kmh:30}") double speedKmh,
+                                 @Value("${routing.surrogate.detour-factor:1.3}") double detourFactor) {
+        if (speedKmh <= 0) {
+            throw new IllegalArgumentException("Surrogate speed must be positive: " + speedKmh);
+        }
+        this.metresPerSecond = speedKmh / 3.6;
+        this.detourFactor = detourFactor;
+    }
+
+    // Estimates are symmetric, so each pair is computed once for both directions
+    @Override
+    public int fillDistanceMatrix(DistanceMatrix matrix) {
+        int size = matrix.size();
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] z = new double[size];
+        for (int i = 0; i < size; i++) {
+            double[] point = unitPoint(matrix.getAddress(i));
+            x[i] = point[0];
+            y[i] = point[1];
+            z[i] = point[2];
+        }
+
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double dz = z[i] - z[j];
+                double distance = roadDistance(dx * dx + dy * dy + dz * dz);
+                double time = distance / metresPerSecond;
+                if (!matrix.isKnown(i, j)) {
+                    matrix.setEstimate(i, j, time, distance);
+                }
+                if (!matrix.isKnown(j, i)) {
+                    matrix.setEstimate(j, i, time, distance);
+                }
+            }
+        }
+        return 0;
+    }
+
+    // Single pair, for filling in the odd entry another provider could not answer
+    public TimeDistance estimate(Address from, Address to) {
+        double[] fromPoint = unitPoint(from);
+        double[] toPoint = unitPoint(to);
+        double dx = fromPoint[0] - toPoint[0];
+        double dy = fromPoint[1] - toPoint[1];
+        double dz = fromPoint[2] - toPoint[2];
+        double distance = roadDistance(dx * dx + dy * dy + dz * dz);
+        return new TimeDistance(distance / metresPerSecond, distance);
+    }
+
+    // Cartesian coordinates of the address on the unit sphere
+    private static double[] unitPoint(Address address) {
+        double latitude = Math.toRadians(address.getLatitude());
+        double longitude = Math.toRadians(address.getLongitude());
+        double cosLatitude = Math.cos(latitude);
+        return new double[]{cosLatitude * Math.cos(longitude), cosLatitude * Math.sin(longitude), Math.sin(latitude)};
+    }
+
+    // The squared chord of two unit points is 4 * haversine(angle), so half the chord is sin(angle / 2)
+    private double roadDistance(double squaredChord) {
+        double halfChord = 0.5 * Math.sqrt(squaredChord);
+        return 2 * EARTH_RADIUS_METRES * Math.asin(Math.min(1.0, halfChord)) * detourFactor;
+    }
+}
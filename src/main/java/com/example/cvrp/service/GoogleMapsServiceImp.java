@@ -1,29 +1,545 @@
 package com.example.cvrp.service;
 
+import com.example.cvrp.dto.TimeDistance;
+import com.example.cvrp.exceptions.DistanceMatrixApiException;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
 import com.example.cvrp.model.GoogleMapsResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Distance Matrix API client. Requests go out asynchronously on one shared HttpClient, which keeps its connections
+ * alive and reuses them, and at most maxConcurrentRequests of them are in flight at a time; the rest wait in a queue
+ * without holding a thread. Concurrent callers asking for the same origins and destinations share one request.
+ * <p>
+ * Requests are paced by a token bucket counting elements, so a large solve spreads its requests over the quota
+ * instead of bursting into it. Throttled and failed requests are retried with jittered exponential backoff, and
+ * after repeated failures a circuit breaker suspends calls for a while. Pairs that still got no answer are filled
+ * with coordinate estimates and remembered for a TTL, so later solves use the estimate instead of asking again.
+ */
 @Service
-public class GoogleMapsServiceImp {
+public class GoogleMapsServiceImp implements CostProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleMapsServiceImp.class);
+
+    private static final String DISTANCE_MATRIX_PATH = "/maps/api/distancematrix/json";
 
-    private final RestTemplate restTemplate;
+    // Expired failed pairs are purged once the negative cache grows past this
+    private static final int FAILED_PAIRS_PURGE_SIZE = 100_000;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final GeometricCostProvider surrogateCostProvider;
+    private final String distanceMatrixUrl;
     private final String googleMapsApiKey;
+    private final int maxElementsPerRequest;
+    private final int maxLocationsPerSide;
+    private final Duration requestTimeout;
+    private final ExecutorService httpExecutor;
+
+    // Concurrency cap, requests over it wait here until a running one completes
+    private final Semaphore requestPermits;
+    private final Queue<Runnable> waitingRequests = new ConcurrentLinkedQueue<>();
 
-    public GoogleMapsServiceImp(@Value("${google.maps.apikey}") String googleMapsApiKey) {
-        this.restTemplate = new RestTemplate();
+    // Requests in flight by URI, a caller asking for the same one joins it instead of sending another
+    private final Map<URI, CompletableFuture<GoogleMapsResponse>> inFlightRequests = new ConcurrentHashMap<>();
+    private final AtomicInteger coalescedRequests = new AtomicInteger();
+
+    // Null when rate limiting is disabled
+    private final TokenBucket rateLimiter;
+    private final int maxAttempts;
+    private final long retryBaseDelayMillis;
+    private final long retryMaxDelayMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    // Negative cache: origin/destination pairs that got no answer, with the System.nanoTime() they expire at
+    private final Map<String, Long> failedPairs = new ConcurrentHashMap<>();
+    private final long failedPairTtlNanos;
+
+    /**
+     * @param baseUrl                 scheme and host of the API, e.g. a local DistanceMatrixStubServer for load tests
+     * @param maxConcurrentRequests   requests in flight at the same time over all callers
+     * @param connectTimeoutMillis    timeout for opening a connection, connections are then kept alive and reused
+     * @param requestTimeoutMillis    timeout of one request until its response arrives
+     * @param elementsPerSecond       sustained element rate of the quota, 0 disables rate limiting
+     * @param burstElements           elements that can be requested at once after an idle period
+     * @param maxAttempts             attempts per request, including the first one
+     * @param failureThreshold        failed attempts in a row, by server errors, timeouts or throttling, that open the circuit
+     * @param circuitOpenMillis       how long calls are suspended before a probe request is let through
+     * @param failedPairTtlMillis     how long a pair without an answer is estimated instead of requested, 0 for never
+     */
+    public GoogleMapsServiceImp(@Value("${google.maps.base-url:https://maps.googleapis.com}") String baseUrl,
+                                @Value("${google.maps.apikey}") String googleMapsApiKey,
+                                @Value("${google.maps.max-elements-per-request:100}") int maxElementsPerRequest,
+                                @Value("${google.maps.max-locations-per-side:25}") int maxLocationsPerSide,
+                                @Value("${google.maps.batch-concurrency:8}") int maxConcurrentRequests,
+                                @Value("${google.maps.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                                @Value("${google.maps.request-timeout-ms:30000}") long requestTimeoutMillis,
+                                @Value("${google.maps.rate-limit.elements-per-second:1000}") double elementsPerSecond,
+                                @Value("${google.maps.rate-limit.burst-elements:1000}") int burstElements,
+                                @Value("${google.maps.retry.max-attempts:4}") int maxAttempts,
+                                @Value("${google.maps.retry.base-delay-ms:200}") long retryBaseDelayMillis,
+                                @Value("${google.maps.retry.max-delay-ms:5000}") long retryMaxDelayMillis,
+                                @Value("${google.maps.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                @Value("${google.maps.circuit-breaker.open-ms:30000}") long circuitOpenMillis,
+                                @Value("${google.maps.negative-cache.ttl-ms:300000}") long failedPairTtlMillis,
+                                GeometricCostProvider surrogateCostProvider) {
+        this.distanceMatrixUrl = baseUrl.replaceAll("/+$", "") + DISTANCE_MATRIX_PATH;
         this.googleMapsApiKey = googleMapsApiKey;
+        this.maxElementsPerRequest = maxElementsPerRequest;
+        this.maxLocationsPerSide = maxLocationsPerSide;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.requestPermits = new Semaphore(Math.max(1, maxConcurrentRequests));
+        this.rateLimiter = elementsPerSecond > 0 ? new TokenBucket(elementsPerSecond, burstElements) : null;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBaseDelayMillis = Math.max(1, retryBaseDelayMillis);
+        this.retryMaxDelayMillis = Math.max(this.retryBaseDelayMillis, retryMaxDelayMillis);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, circuitOpenMillis);
+        this.failedPairTtlNanos = failedPairTtlMillis * 1_000_000;
+        this.surrogateCostProvider = surrogateCostProvider;
+
+        // Only runs response handling, completions and delayed sends, requests do not block a thread while in flight
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.httpExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "google-maps-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .executor(httpExecutor)
+                .build();
     }
 
     public GoogleMapsResponse getDistanceMatrix(String origins, String destinations) {
-        UriComponentsBuilder uriBuilder = UriComponentsBuilder
-                .fromHttpUrl("https://maps.googleapis.com/maps/api/distancematrix/json")
+        try {
+            return getDistanceMatrixAsync(origins, destinations).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    // Many origins x many destinations in one request, rows follow origins and elements follow destinations
+    public GoogleMapsResponse getDistanceMatrix(List<Address> origins, List<Address> destinations) {
+        return getDistanceMatrix(toLocationParam(origins), toLocationParam(destinations));
+    }
+
+    public CompletableFuture<GoogleMapsResponse> getDistanceMatrixAsync(List<Address> origins, List<Address> destinations) {
+        return getDistanceMatrixAsync(toLocationParam(origins), toLocationParam(destinations));
+    }
+
+    /**
+     * Sends the request without blocking the caller. If the same request is already in flight, its response is
+     * shared instead. The returned future is the caller's own, cancelling it does not affect other callers.
+     * It fails with a DistanceMatrixApiException once the retries are used up or while the circuit is open.
+     */
+    public CompletableFuture<GoogleMapsResponse> getDistanceMatrixAsync(String origins, String destinations) {
+        URI uri = UriComponentsBuilder
+                .fromHttpUrl(distanceMatrixUrl)
                 .queryParam("origins", origins)
                 .queryParam("destinations", destinations)
-                .queryParam("key", googleMapsApiKey);
+                .queryParam("key", googleMapsApiKey)
+                .build()
+                .encode()
+                .toUri();
+
+        CompletableFuture<GoogleMapsResponse> request = new CompletableFuture<>();
+        CompletableFuture<GoogleMapsResponse> inFlight = inFlightRequests.putIfAbsent(uri, request);
+        if (inFlight != null) {
+            coalescedRequests.incrementAndGet();
+            return inFlight.copy();
+        }
+        request.whenComplete((response, error) -> inFlightRequests.remove(uri, request));
+
+        execute(uri, countLocations(origins) * countLocations(destinations), 1, request);
+        return request.copy();
+    }
+
+    // Number of requests that were answered by joining an identical request in flight
+    public int getCoalescedRequestCount() {
+        return coalescedRequests.get();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // Queues one attempt unless the circuit is open, it waits for a concurrency permit and then for the rate limiter before it is sent
+    private void execute(URI uri, int elements, int attempt, CompletableFuture<GoogleMapsResponse> request) {
+        if (!circuitBreaker.allowRequest()) {
+            request.completeExceptionally(new DistanceMatrixApiException("Circuit breaker is open, Distance Matrix API calls are suspended", false));
+            return;
+        }
+        waitingRequests.add(() -> {
+            long waitNanos = rateLimiter != null ? rateLimiter.reserve(elements) : 0;
+            Executor sendExecutor = waitNanos > 0
+                    ? CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, httpExecutor)
+                    : Runnable::run;
+            CompletableFuture.supplyAsync(() -> send(uri), sendExecutor)
+                    .thenCompose(response -> response)
+                    .whenComplete((response, error) -> {
+                        requestPermits.release();
+                        dispatchWaitingRequests();
+                        onResponse(uri, elements, attempt, request, response, error);
+                    });
+        });
+        dispatchWaitingRequests();
+    }
+
+    private void onResponse(URI uri, int elements, int attempt, CompletableFuture<GoogleMapsResponse> request,
+                            GoogleMapsResponse response, Throwable error) {
+        if (error == null) {
+            circuitBreaker.recordSuccess();
+            request.complete(response);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!isRetryable(cause)) {
+            // A rejected request, e.g. INVALID_REQUEST or MAX_ELEMENTS_EXCEEDED, still shows the API is answering
+            circuitBreaker.recordSuccess();
+            request.completeExceptionally(cause);
+            return;
+        }
+        circuitBreaker.recordFailure();
+        if (attempt < maxAttempts) {
+            long delay = backoffMillis(attempt);
+            log.debug("Distance Matrix request failed ({}), attempt {} of {} in {}ms", cause.getMessage(), attempt + 1, maxAttempts, delay);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, httpExecutor)
+                    .execute(() -> execute(uri, elements, attempt + 1, request));
+            return;
+        }
+        request.completeExceptionally(cause);
+    }
+
+    // Connection problems, timeouts, throttling and server errors are worth another try and count against the circuit breaker,
+    // a rejected request is neither
+    private static boolean isRetryable(Throwable cause) {
+        return cause instanceof IOException
+                || (cause instanceof DistanceMatrixApiException && ((DistanceMatrixApiException) cause).isRetryable());
+    }
+
+    // Exponential backoff with equal jitter, so retries of requests that failed together do not return together
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(retryMaxDelayMillis, retryBaseDelayMillis << Math.min(attempt - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private CompletableFuture<GoogleMapsResponse> send(URI uri) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(this::parse);
+    }
+
+    private GoogleMapsResponse parse(HttpResponse<byte[]> response) {
+        int statusCode = response.statusCode();
+        if (statusCode != 200) {
+            throw new DistanceMatrixApiException("Distance Matrix API returned HTTP " + statusCode,
+                    statusCode == 429 || statusCode >= 500);
+        }
+        GoogleMapsResponse body;
+        try {
+            body = objectMapper.readValue(response.body(), GoogleMapsResponse.class);
+        } catch (IOException e) {
+            throw new DistanceMatrixApiException("Unreadable Distance Matrix API response", e);
+        }
+        String status = body.getStatus();
+        if (status != null && !"OK".equals(status)) {
+            throw new DistanceMatrixApiException("Distance Matrix API returned " + status,
+                    "OVER_QUERY_LIMIT".equals(status) || "UNKNOWN_ERROR".equals(status));
+        }
+        return body;
+    }
+
+    // Starts waiting requests while permits are free, called on every submission and every completion
+    private void dispatchWaitingRequests() {
+        while (!waitingRequests.isEmpty() && requestPermits.tryAcquire()) {
+            Runnable next = waitingRequests.poll();
+            if (next == null) {
+                // Another thread took it, give the permit back and check the queue again
+                requestPermits.release();
+                continue;
+            }
+            next.run();
+        }
+    }
+
+    /**
+     * Fills every unknown entry of the matrix using as few requests as the per-request element limit allows.
+     * The n x n matrix is cut into tiles, tiles without unknown entries are skipped and the rest are requested
+     * at once, bounded by the concurrency cap. Pairs the API reports as unroutable are stored as Double.MAX_VALUE,
+     * pairs of failed requests get coordinate estimates.
+     *
+     * @return the number of requests sent to the API
+     */
+    @Override
+    public int fillDistanceMatrix(DistanceMatrix matrix) {
+        int size = matrix.size();
+        String[] locations = toLocations(matrix);
+        AtomicInteger estimates = new AtomicInteger(estimateFailedPairs(matrix, locations));
+
+        int rowsPerTile = Math.max(1, Math.min(maxLocationsPerSide, (int) Math.sqrt(maxElementsPerRequest)));
+        int columnsPerTile = Math.max(1, Math.min(maxLocationsPerSide, maxElementsPerRequest / rowsPerTile));
+
+        List<CompletableFuture<Void>> tiles = new ArrayList<>();
+        for (int rowStart = 0; rowStart < size; rowStart += rowsPerTile) {
+            for (int columnStart = 0; columnStart < size; columnStart += columnsPerTile) {
+                int rowEnd = Math.min(size, rowStart + rowsPerTile);
+                int columnEnd = Math.min(size, columnStart + columnsPerTile);
+                if (hasUnknownEntry(matrix, rowStart, rowEnd, columnStart, columnEnd)) {
+                    tiles.add(fetchTile(matrix, locations, estimates, rowStart, rowEnd, columnStart, columnEnd));
+                }
+            }
+        }
+
+        CompletableFuture.allOf(tiles.toArray(new CompletableFuture[0])).join();
+        log.info("Filled {}x{} distance matrix with {} Google Maps requests, {} entries estimated",
+                size, size, tiles.size(), estimates.get());
+        return tiles.size();
+    }
+
+    // Entries are grouped by origin, so each request is one origin against up to maxElementsPerRequest destinations
+    @Override
+    public int fillEntries(DistanceMatrix matrix, int[] origins, int[] destinations) {
+        String[] locations = toLocations(matrix);
+        AtomicInteger estimates = new AtomicInteger(estimateFailedPairs(matrix, locations, origins, destinations));
+
+        Map<Integer, List<Integer>> destinationsByOrigin = new LinkedHashMap<>();
+        for (int k = 0; k < origins.length; k++) {
+            if (origins[k] != destinations[k] && !matrix.isKnown(origins[k], destinations[k])) {
+                List<Integer> row = destinationsByOrigin.computeIfAbsent(origins[k], origin -> new ArrayList<>());
+                if (!row.contains(destinations[k])) {
+                    row.add(destinations[k]);
+                }
+            }
+        }
+
+        int columnsPerRequest = Math.max(1, Math.min(maxLocationsPerSide, maxElementsPerRequest));
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        destinationsByOrigin.forEach((origin, row) -> {
+            for (int start = 0; start < row.size(); start += columnsPerRequest) {
+                List<Integer> columns = row.subList(start, Math.min(row.size(), start + columnsPerRequest));
+                requests.add(fetchEntries(matrix, locations, estimates, origin, columns));
+            }
+        });
+
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+        log.info("Filled {} route entries with {} Google Maps requests, {} entries estimated",
+                origins.length, requests.size(), estimates.get());
+        return requests.size();
+    }
+
+    private CompletableFuture<Void> fetchEntries(DistanceMatrix matrix, String[] locations, AtomicInteger estimates,
+                                                 int origin, List<Integer> columns) {
+        List<Address> destinations = columns.stream().map(matrix::getAddress).collect(Collectors.toList());
+        return getDistanceMatrixAsync(List.of(matrix.getAddress(origin)), destinations)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        log.warn("Distance matrix entries from {} failed: {}", origin, rootMessage(error));
+                    }
+                    for (int k = 0; k < columns.size(); k++) {
+                        GoogleMapsResponse.Element element = error != null ? null : getElement(response, 0, k);
+                        storeElement(matrix, locations, estimates, origin, columns.get(k), element);
+                    }
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Void> fetchTile(DistanceMatrix matrix, String[] locations, AtomicInteger estimates,
+                                              int rowStart, int rowEnd, int columnStart, int columnEnd) {
+        List<Address> origins = matrix.getAddresses().subList(rowStart, rowEnd);
+        List<Address> destinations = matrix.getAddresses().subList(columnStart, columnEnd);
+        return getDistanceMatrixAsync(origins, destinations)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        log.warn("Distance matrix tile [{}-{}) x [{}-{}) failed: {}",
+                                rowStart, rowEnd, columnStart, columnEnd, rootMessage(error));
+                    }
+                    for (int i = rowStart; i < rowEnd; i++) {
+                        for (int j = columnStart; j < columnEnd; j++) {
+                            if (i != j && !matrix.isKnown(i, j)) {
+                                GoogleMapsResponse.Element element = error != null ? null : getElement(response, i - rowStart, j - columnStart);
+                                storeElement(matrix, locations, estimates, i, j, element);
+                            }
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    // A missing element means the request failed, an element without values means the pair has no route
+    private void storeElement(DistanceMatrix matrix, String[] locations, AtomicInteger estimates, int i, int j,
+                              GoogleMapsResponse.Element element) {
+        if (element == null) {
+            recordFailedPair(locations[i], locations[j]);
+            estimate(matrix, i, j);
+            estimates.incrementAndGet();
+        } else if (element.getDuration() == null || element.getDistance() == null) {
+            matrix.set(i, j, Double.MAX_VALUE, Double.MAX_VALUE); // Handle error
+        } else {
+            matrix.set(i, j, element.getDuration().getValue(), element.getDistance().getValue());
+        }
+    }
+
+    // Estimates the unknown entries whose pair failed recently, so they are not requested again
+    private int estimateFailedPairs(DistanceMatrix matrix, String[] locations) {
+        if (failedPairs.isEmpty()) {
+            return 0;
+        }
+        int estimated = 0;
+        for (int i = 0; i < matrix.size(); i++) {
+            for (int j = 0; j < matrix.size(); j++) {
+                if (estimateIfFailed(matrix, locations, i, j)) {
+                    estimated++;
+                }
+            }
+        }
+        return estimated;
+    }
+
+    // Like estimateFailedPairs(matrix, locations), but only for the entries origins[k] -> destinations[k]
+    private int estimateFailedPairs(DistanceMatrix matrix, String[] locations, int[] origins, int[] destinations) {
+        if (failedPairs.isEmpty()) {
+            return 0;
+        }
+        int estimated = 0;
+        for (int k = 0; k < origins.length; k++) {
+            if (estimateIfFailed(matrix, locations, origins[k], destinations[k])) {
+                estimated++;
+            }
+        }
+        return estimated;
+    }
+
+    private boolean estimateIfFailed(DistanceMatrix matrix, String[] locations, int i, int j) {
+        if (i == j || matrix.isKnown(i, j) || !hasFailedRecently(locations[i], locations[j])) {
+            return false;
+        }
+        estimate(matrix, i, j);
+        return true;
+    }
+
+    private void estimate(DistanceMatrix matrix, int i, int j) {
+        TimeDistance estimate = surrogateCostProvider.estimate(matrix.getAddress(i), matrix.getAddress(j));
+        matrix.setEstimate(i, j, estimate.getTime(), estimate.getDistance());
+    }
+
+    private boolean hasFailedRecently(String origin, String destination) {
+        String key = origin + ">" + destination;
+        Long expiresAt = failedPairs.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt >= 0) {
+            failedPairs.remove(key, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private void recordFailedPair(String origin, String destination) {
+        if (failedPairTtlNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        failedPairs.put(origin + ">" + destination, now + failedPairTtlNanos);
+        if (failedPairs.size() > FAILED_PAIRS_PURGE_SIZE) {
+            failedPairs.values().removeIf(expiresAt -> now - expiresAt >= 0);
+        }
+    }
+
+    private GoogleMapsResponse.Element getElement(GoogleMapsResponse response, int row, int column) {
+        if (response == null || response.getRows() == null || response.getRows().size() <= row) {
+            return null;
+        }
+        List<GoogleMapsResponse.Element> elements = response.getRows().get(row).getElements();
+        if (elements == null || elements.size() <= column) {
+            return null;
+        }
+        return elements.get(column);
+    }
+
+    private boolean hasUnknownEntry(DistanceMatrix matrix, int rowStart, int rowEnd, int columnStart, int columnEnd) {
+        for (int i = rowStart; i < rowEnd; i++) {
+            for (int j = columnStart; j < columnEnd; j++) {
+                if (!matrix.isKnown(i, j)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
+    private String toLocationParam(List<Address> addresses) {
+        return addresses.stream()
+                .map(this::toLocation)
+                .collect(Collectors.joining("|"));
+    }
+
+    private String toLocation(Address address) {
+        return address.getLatitude() + "," + address.getLongitude();
+    }
+
+    private String[] toLocations(DistanceMatrix matrix) {
+        String[] locations = new String[matrix.size()];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = toLocation(matrix.getAddress(i));
+        }
+        return locations;
+    }
+
+    private static int countLocations(String locations) {
+        int count = 1;
+        for (int k = 0; k < locations.length(); k++) {
+            if (locations.charAt(k) == '|') {
+                count++;
+            }
+        }
+        return count;
+    }
 
-        return restTemplate.getForObject(uriBuilder.toUriString(), GoogleMapsResponse.class);
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
     }
 }
@@ -0,0 +1,169 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.algorithms.SolveContext;
+import com.example.cvrp.dto.CostMode;
+import com.example.cvrp.dto.RouteJobStatus;
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.Address;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One route calculation in the background. The solve context, which holds the budget and the best route so far,
+ * is only created when the job starts running, so time spent waiting in the queue does not count against the budget.
+ */
+public class RouteJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String id;
+    private final String algorithm;
+    private final Address depot;
+    private final List<Address> addresses;
+    private final long vehicleCapacity;
+    private final CostMode costMode;
+    private final long budgetMillis;
+    private final long maxIterations;
+    private final long submittedAt = System.currentTimeMillis();
+    private final CompletableFuture<List<RouteLeg>> result = new CompletableFuture<>();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile SolveContext context;
+    private volatile boolean cancelled;
+    private volatile String error;
+    private volatile long finishedAt;
+    private volatile long elapsedMillis;
+
+    public RouteJob(String id, String algorithm, Address depot, List<Address> addresses, long vehicleCapacity, CostMode costMode,
+                    long budgetMillis, long maxIterations) {
+        this.id = id;
+        this.algorithm = algorithm;
+        this.depot = depot;
+        this.addresses = addresses;
+        this.vehicleCapacity = vehicleCapacity;
+        this.costMode = costMode;
+        this.budgetMillis = budgetMillis;
+        this.maxIterations = maxIterations;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public Address getDepot() {
+        return depot;
+    }
+
+    public List<Address> getAddresses() {
+        return addresses;
+    }
+
+    public long getVehicleCapacity() {
+        return vehicleCapacity;
+    }
+
+    public CostMode getCostMode() {
+        return costMode;
+    }
+
+    public SolveContext getContext() {
+        return context;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return state != State.QUEUED && state != State.RUNNING;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    // Completes with the final route, also after a cancel, or exceptionally when the solve fails
+    public CompletableFuture<List<RouteLeg>> getResult() {
+        return result;
+    }
+
+    List<SseEmitter> getEmitters() {
+        return emitters;
+    }
+
+    // Called on the worker thread right before the solve, the budget starts counting from here
+    SolveContext start() {
+        SolveContext started = new SolveContext(budgetMillis, maxIterations);
+        context = started;
+        // A cancel that raced with the start has either seen the context or is caught here
+        if (cancelled) {
+            started.cancel();
+        }
+        state = State.RUNNING;
+        return started;
+    }
+
+    // A cancelled solve still ends with its best route so far, so the job only counts as cancelled once it returns
+    void finish(List<RouteLeg> route) {
+        if (context != null) {
+            context.complete(route);
+            elapsedMillis = context.getElapsedMillis();
+        }
+        finishedAt = System.currentTimeMillis();
+        state = cancelled ? State.CANCELLED : State.COMPLETED;
+        result.complete(route);
+    }
+
+    void fail(Throwable cause) {
+        error = cause.getMessage();
+        if (context != null) {
+            elapsedMillis = context.getElapsedMillis();
+        }
+        finishedAt = System.currentTimeMillis();
+        state = cancelled ? State.CANCELLED : State.FAILED;
+        result.completeExceptionally(cause);
+    }
+
+    void cancel() {
+        cancelled = true;
+        SolveContext running = context;
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    // Progress snapshots can leave the route out, it is the largest part of the status
+    public RouteJobStatus toStatus(boolean includeRoute) {
+        State currentState = state;
+        SolveContext current = context;
+        List<RouteLeg> route = current != null ? current.getBestRoute() : List.of();
+        double totalTime = route.stream().mapToDouble(RouteLeg::getTime).sum();
+        double totalDistance = route.stream().mapToDouble(RouteLeg::getDistance).sum();
+        long elapsed = currentState == State.RUNNING && current != null ? current.getElapsedMillis() : elapsedMillis;
+        long iterations = current != null ? current.getIterations() : 0;
+        return new RouteJobStatus(id, algorithm, currentState.name(), System.currentTimeMillis() - submittedAt, elapsed,
+                iterations, totalTime, totalDistance, includeRoute ? route : null, error);
+    }
+
+    public RouteJobStatus toStatus() {
+        return toStatus(true);
+    }
+}
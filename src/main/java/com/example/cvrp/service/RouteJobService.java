@@ -0,0 +1,282 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.algorithms.SolveContext;
+import com.example.cvrp.dto.CostMode;
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.exceptions.ItemNotFoundException;
+import com.example.cvrp.exceptions.JobRejectedException;
+import com.example.cvrp.model.Address;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs route calculations off the request threads. Jobs run on a dedicated pool of worker threads, at most
+ * perAlgorithmConcurrency of them per algorithm at a time; the rest wait in per-algorithm queues without holding
+ * a worker. A submission is rejected once maxQueuedJobs jobs are waiting, so a burst of large solves cannot pile
+ * up unbounded work. Clients poll a job or subscribe to its progress events, and can cancel it, which stops the
+ * search and keeps its best route so far. Finished jobs are kept for the retention period.
+ */
+@Service
+public class RouteJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteJobService.class);
+
+    private final RoutingServiceImp routingServiceImp;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ScheduledExecutorService progressScheduler;
+    private final int maxQueuedJobs;
+    private final int perAlgorithmConcurrency;
+    private final long retentionMillis;
+    private final long responseTimeoutMillis;
+    private final Map<String, RouteJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, AlgorithmLane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedJobs = new AtomicInteger();
+
+    /**
+     * @param threads                 worker threads, i.e. jobs running at the same time over all algorithms
+     * @param maxQueuedJobs           jobs waiting to start before new submissions are rejected
+     * @param perAlgorithmConcurrency jobs of one algorithm running at the same time
+     * @param responseTimeoutMillis   how long a waiting route request or event stream is kept open
+     * @param progressIntervalMillis  interval of the progress events sent to subscribers
+     */
+    public RouteJobService(RoutingServiceImp routingServiceImp,
+                           @Value("${routing.jobs.threads:2}") int threads,
+                           @Value("${routing.jobs.queue-capacity:50}") int maxQueuedJobs,
+                           @Value("${routing.jobs.per-algorithm-concurrency:2}") int perAlgorithmConcurrency,
+                           @Value("${routing.jobs.retention-ms:3600000}") long retentionMillis,
+                           @Value("${routing.jobs.response-timeout-ms:600000}") long responseTimeoutMillis,
+                           @Value("${routing.jobs.progress-interval-ms:500}") long progressIntervalMillis) {
+        this.routingServiceImp = routingServiceImp;
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.perAlgorithmConcurrency = Math.max(1, perAlgorithmConcurrency);
+        this.retentionMillis = retentionMillis;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+
+        // Lanes never hand the pool more jobs than it has threads per algorithm, the work queue only smooths the hand-off
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "route-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-job-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progressScheduler.scheduleAtFixedRate(this::sendProgress, progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param budgetMillis  wall-clock budget of the search, 0 for none
+     * @param maxIterations iteration budget of the search, 0 for none
+     * @throws JobRejectedException when the queue is full
+     */
+    public RouteJob submit(String algorithm, Address depot, List<Address> addresses, long vehicleCapacity, CostMode costMode,
+                           long budgetMillis, long maxIterations) {
+        if (!routingServiceImp.isKnownAlgorithm(algorithm)) {
+            throw new IllegalArgumentException("Unknown routing algorithm: " + algorithm);
+        }
+        evictFinishedJobs();
+
+        // Admission control: the job is counted as queued until a worker picks it up
+        if (queuedJobs.incrementAndGet() > maxQueuedJobs) {
+            queuedJobs.decrementAndGet();
+            log.warn("Route job for {} rejected, {} jobs are already waiting", algorithm, maxQueuedJobs);
+            throw new JobRejectedException("Too many route jobs are waiting, retry later");
+        }
+
+        RouteJob job = new RouteJob(UUID.randomUUID().toString(), algorithm, depot, addresses, vehicleCapacity,
+                costMode != null ? costMode : CostMode.EXACT, budgetMillis, maxIterations);
+        jobs.put(job.getId(), job);
+        lanes.computeIfAbsent(algorithm, name -> new AlgorithmLane()).submit(job);
+        log.info("Route job {} submitted: {} on {} addresses, budget {}ms / {} iterations",
+                job.getId(), algorithm, addresses.size(), budgetMillis, maxIterations);
+        return job;
+    }
+
+    public RouteJob getJob(String id) {
+        RouteJob job = jobs.get(id);
+        if (job == null) {
+            throw new ItemNotFoundException("Route job by id:" + id + " was not found");
+        }
+        return job;
+    }
+
+    public RouteJob cancel(String id) {
+        RouteJob job = getJob(id);
+        job.cancel();
+        // A job still waiting in its lane gives up its place and its admission slot right away
+        AlgorithmLane lane = lanes.get(job.getAlgorithm());
+        if (lane != null && lane.remove(job)) {
+            queuedJobs.decrementAndGet();
+            finish(job, List.of(), null);
+        }
+        return job;
+    }
+
+    public long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    /**
+     * Streams "progress" events without the route while the job runs, then one "result" event with the full status
+     * and completes. A job that has already finished only gets the result event.
+     */
+    public SseEmitter subscribe(String id) {
+        RouteJob job = getJob(id);
+        SseEmitter emitter = new SseEmitter(responseTimeoutMillis);
+        emitter.onCompletion(() -> job.getEmitters().remove(emitter));
+        emitter.onTimeout(() -> job.getEmitters().remove(emitter));
+        emitter.onError(error -> job.getEmitters().remove(emitter));
+
+        synchronized (job) {
+            if (!job.isFinished()) {
+                job.getEmitters().add(emitter);
+                send(emitter, "progress", job.toStatus(false));
+                return emitter;
+            }
+        }
+        send(emitter, "result", job.toStatus());
+        emitter.complete();
+        return emitter;
+    }
+
+    private void run(RouteJob job) {
+        queuedJobs.decrementAndGet();
+        // Cancelled while queued, nothing to solve
+        if (job.isCancelled()) {
+            finish(job, List.of(), null);
+            return;
+        }
+        SolveContext context = job.start();
+        try {
+            List<RouteLeg> route = routingServiceImp.calculateRoute(job.getAlgorithm(), job.getDepot(), job.getAddresses(),
+                    job.getVehicleCapacity(), job.getCostMode(), context);
+            finish(job, route, null);
+            log.info("Route job {} {} after {} iterations in {}ms", job.getId(), job.getState(),
+                    context.getIterations(), context.getElapsedMillis());
+        } catch (RuntimeException | Error e) {
+            // Errors such as an OutOfMemoryError still end the job, so subscribers get their result event
+            log.error("Route job {} failed", job.getId(), e);
+            finish(job, null, e);
+            if (e instanceof Error) {
+                throw e;
+            }
+        }
+    }
+
+    private void finish(RouteJob job, List<RouteLeg> route, Throwable error) {
+        List<SseEmitter> emitters;
+        synchronized (job) {
+            if (error != null) {
+                job.fail(error);
+            } else {
+                job.finish(route);
+            }
+            emitters = List.copyOf(job.getEmitters());
+            job.getEmitters().clear();
+        }
+        for (SseEmitter emitter : emitters) {
+            send(emitter, "result", job.toStatus());
+            emitter.complete();
+        }
+    }
+
+    private void sendProgress() {
+        for (RouteJob job : jobs.values()) {
+            if (job.getEmitters().isEmpty() || job.isFinished()) {
+                continue;
+            }
+            Object status = job.toStatus(false);
+            for (SseEmitter emitter : job.getEmitters()) {
+                send(emitter, "progress", status);
+            }
+        }
+    }
+
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone away, its emitter is removed by the completion callback
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(RouteJob::cancel);
+        progressScheduler.shutdownNow();
+        jobExecutor.shutdownNow();
+    }
+
+    // Concurrency limit of one algorithm, jobs over the limit wait here in submission order
+    private final class AlgorithmLane {
+        private final Queue<RouteJob> waiting = new ArrayDeque<>();
+        private int running;
+
+        void submit(RouteJob job) {
+            synchronized (this) {
+                if (running >= perAlgorithmConcurrency) {
+                    waiting.add(job);
+                    return;
+                }
+                running++;
+            }
+            dispatch(job);
+        }
+
+        // True if the job was still waiting, it will then never be dispatched
+        synchronized boolean remove(RouteJob job) {
+            return waiting.remove(job);
+        }
+
+        private void dispatch(RouteJob job) {
+            jobExecutor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    release();
+                }
+            });
+        }
+
+        // The finished job's slot goes straight to the next waiting job of the same algorithm
+        private void release() {
+            RouteJob next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+            dispatch(next);
+        }
+    }
+}
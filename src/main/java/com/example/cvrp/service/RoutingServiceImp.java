@@ -1,10 +1,7 @@
 package com.example.cvrp.service;
 
 import com.example.cvrp.algorithms.*;
-import com.example.cvrp.algorithmsTest.NearestNeighborAlgorithmTest;
-import com.example.cvrp.algorithmsTest.NearestNeighborSATest;
-import com.example.cvrp.algorithmsTest.SavingsAlgorithmTest;
-import com.example.cvrp.algorithmsTest.SimulatedAnnealingAlgorithmTest;
+import com.example.cvrp.dto.CostMode;
 import com.example.cvrp.dto.RouteCalculationResult;
 import com.example.cvrp.dto.RouteLeg;
 import com.example.cvrp.model.Address;
@@ -12,6 +9,8 @@ import com.example.cvrp.model.AlgorithmResult;
 import com.example.cvrp.model.RouteLegEntity;
 import com.example.cvrp.serviceTest.DistanceMatrixServiceImp;
 import com.example.cvrp.util.MemoryUsageUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -25,32 +24,88 @@ public class RoutingServiceImp {
     private final AddressService addressService;
     private final DistanceMatrixServiceImp distanceMatrixService;
     private final AlgorithmResultServiceImp algorithmResultServiceImp;
+    private final TravelCostCache travelCostCache;
+    private final TwoPhaseSolver twoPhaseSolver;
+    private final CostProvider googleCosts;
     private final Map<String, RoutingAlgorithm> routingAlgorithms;
     private final Map<String, RoutingAlgorithm> testRoutingAlgorithms;
 
-    public RoutingServiceImp(GoogleMapsServiceImp googleMapsService, AddressService addressService, DistanceMatrixServiceImp distanceMatrixService, AlgorithmResultServiceImp algorithmResultServiceImp) {
+    public RoutingServiceImp(GoogleMapsServiceImp googleMapsService, AddressService addressService, DistanceMatrixServiceImp distanceMatrixService, AlgorithmResultServiceImp algorithmResultServiceImp, TravelCostCache travelCostCache,
+                             TwoPhaseSolver twoPhaseSolver,
+                             @Value("${routing.parallel-sa.chains:0}") int parallelChains,
+                             @Value("${routing.parallel-sa.budget-ms:2000}") long parallelBudgetMillis,
+                             @Value("${routing.parallel-sa.exchange-interval:500}") int parallelExchangeInterval,
+                             @Value("${routing.savings.granular-neighbors:30}") int savingsNeighbors,
+                             @Value("${routing.savings.granular-min-size:200}") int savingsGranularMinSize,
+                             @Value("${routing.nearest-neighbor.candidates:0}") int nearestNeighborCandidates,
+                             @Value("${routing.local-search.neighbors:10}") int localSearchNeighbors) {
         this.googleMapsService = googleMapsService;
         this.addressService = addressService;
         this.distanceMatrixService = distanceMatrixService;
         this.algorithmResultServiceImp = algorithmResultServiceImp;
+        this.travelCostCache = travelCostCache;
+        this.twoPhaseSolver = twoPhaseSolver;
+
+        // Every algorithm gets its costs from a provider, the cache in front of it keeps pairs across solves
+        googleCosts = new CachedCostProvider(googleMapsService, travelCostCache);
+        CostProvider databaseCosts = new CachedCostProvider(distanceMatrixService, travelCostCache);
 
         routingAlgorithms = new HashMap<>();
-        routingAlgorithms.put("NearestNeighbor", new NearestNeighborAlgorithm(googleMapsService));
-        routingAlgorithms.put("Savings", new SavingsAlgorithm(googleMapsService));
-        routingAlgorithms.put("SimulatedAnnealing", new SimulatedAnnealingAlgorithm(googleMapsService));
-        routingAlgorithms.put("NearestNeighborSA", new NearestNeighborSA(googleMapsService));
+        addAlgorithms(routingAlgorithms, "", googleCosts, parallelChains, parallelBudgetMillis, parallelExchangeInterval,
+                savingsNeighbors, savingsGranularMinSize, nearestNeighborCandidates);
 
-        // Initialize the test routing algorithms map
+        // The test runs measure the same algorithms on the stored database costs ("...Test") and on Google Maps
         testRoutingAlgorithms = new HashMap<>();
-        testRoutingAlgorithms.put("NearestNeighborTest", new NearestNeighborAlgorithmTest(distanceMatrixService));
-        testRoutingAlgorithms.put("SavingsTest", new SavingsAlgorithmTest(distanceMatrixService));
-        testRoutingAlgorithms.put("SimulatedAnnealingTest", new SimulatedAnnealingAlgorithmTest(distanceMatrixService));
-        testRoutingAlgorithms.put("NearestNeighborSATest", new NearestNeighborSATest(distanceMatrixService));
-
-        testRoutingAlgorithms.put("NearestNeighbor", new NearestNeighborAlgorithm(googleMapsService));
-        testRoutingAlgorithms.put("Savings", new SavingsAlgorithm(googleMapsService));
-        testRoutingAlgorithms.put("SimulatedAnnealing", new SimulatedAnnealingAlgorithm(googleMapsService));
-        testRoutingAlgorithms.put("NearestNeighborSA", new NearestNeighborSA(googleMapsService));
+        addAlgorithms(testRoutingAlgorithms, "Test", databaseCosts, parallelChains, parallelBudgetMillis, parallelExchangeInterval,
+                savingsNeighbors, savingsGranularMinSize, nearestNeighborCandidates);
+        testRoutingAlgorithms.putAll(routingAlgorithms);
+
+        addLocalSearchVariants(routingAlgorithms, localSearchNeighbors);
+        addLocalSearchVariants(testRoutingAlgorithms, localSearchNeighbors);
+    }
+
+    private static void addAlgorithms(Map<String, RoutingAlgorithm> algorithms, String suffix, CostProvider costProvider,
+                                      int parallelChains, long parallelBudgetMillis, int parallelExchangeInterval,
+                                      int savingsNeighbors, int savingsGranularMinSize, int nearestNeighborCandidates) {
+        algorithms.put("NearestNeighbor" + suffix, new NearestNeighborAlgorithm(costProvider, nearestNeighborCandidates));
+        algorithms.put("Savings" + suffix, new SavingsAlgorithm(costProvider, savingsNeighbors, savingsGranularMinSize));
+        algorithms.put("SimulatedAnnealing" + suffix, new SimulatedAnnealingAlgorithm(costProvider));
+        algorithms.put("NearestNeighborSA" + suffix, new NearestNeighborSA(costProvider, nearestNeighborCandidates));
+        algorithms.put("CapacityAwareSimulatedAnnealing" + suffix, new SimulatedAnnealingAlgorithm(costProvider, true));
+        algorithms.put("ParallelSimulatedAnnealing" + suffix, new ParallelSimulatedAnnealing(costProvider,
+                parallelChains, parallelBudgetMillis, parallelExchangeInterval));
+        algorithms.put("CapacitatedSavings" + suffix, new CapacitatedSavingsAlgorithm(costProvider,
+                CapacitatedSavings.Strategy.PARALLEL, savingsNeighbors, savingsGranularMinSize));
+        algorithms.put("SequentialCapacitatedSavings" + suffix, new CapacitatedSavingsAlgorithm(costProvider,
+                CapacitatedSavings.Strategy.SEQUENTIAL, savingsNeighbors, savingsGranularMinSize));
+    }
+
+    // Every algorithm is also available with a local search post-optimisation, e.g. "SavingsWithLocalSearch"
+    private static void addLocalSearchVariants(Map<String, RoutingAlgorithm> algorithms, int neighbors) {
+        Map<String, RoutingAlgorithm> variants = new HashMap<>();
+        algorithms.forEach((name, algorithm) -> variants.put(name + "WithLocalSearch", new LocalSearchAlgorithm(algorithm, neighbors)));
+        algorithms.putAll(variants);
+    }
+
+    // The parallel annealers own their chain threads, the maps share them with their local search wrappers
+    @PreDestroy
+    public void shutdown() {
+        routingAlgorithms.values().forEach(RoutingServiceImp::shutdown);
+        testRoutingAlgorithms.values().forEach(RoutingServiceImp::shutdown);
+    }
+
+    private static void shutdown(RoutingAlgorithm algorithm) {
+        if (algorithm instanceof ParallelSimulatedAnnealing parallelAnnealing) {
+            parallelAnnealing.shutdown();
+        }
+    }
+
+    // The depot has id 1, otherwise the first address is taken as the depot
+    private static Address findDepot(List<Address> addresses) {
+        return addresses.stream()
+                .filter(address -> address.getId().equals(1L))
+                .findFirst()
+                .orElse(addresses.get(0));
     }
 
     public List<RouteLeg> calculateOptimalRoute(String algorithmType, int addressLimit, Long vehicleCapacity) {
@@ -64,13 +119,23 @@ public class RoutingServiceImp {
     }
 
     public List<RouteLeg> calculateRoute(String algorithm, Address depot, List<Address> addressList, Long vehicleCapacity) {
+        return calculateRoute(algorithm, depot, addressList, vehicleCapacity, CostMode.EXACT);
+    }
+
+    public List<RouteLeg> calculateRoute(String algorithm, Address depot, List<Address> addressList, Long vehicleCapacity, CostMode costMode) {
+        return calculateRoute(algorithm, depot, addressList, vehicleCapacity, costMode, new SolveContext());
+    }
+
+    // The context carries the budget of the solve and lets other threads cancel it and read its best route so far
+    public List<RouteLeg> calculateRoute(String algorithm, Address depot, List<Address> addressList, Long vehicleCapacity, CostMode costMode,
+                                         SolveContext context) {
         RoutingAlgorithm selectedAlgorithm = routingAlgorithms.get(algorithm);
         if (selectedAlgorithm != null) {
 
             // Start measuring execution time
             long startTime = System.currentTimeMillis();
 
-            List<RouteLeg> route = selectedAlgorithm.calculateRoute(depot, addressList, vehicleCapacity);
+            List<RouteLeg> route = solve(selectedAlgorithm, depot, addressList, vehicleCapacity, costMode, context);
 
             long endTime = System.currentTimeMillis();
             long executionTime = endTime - startTime; // execution time in milliseconds
@@ -82,19 +147,9 @@ public class RoutingServiceImp {
                     .filter(leg -> leg.getDestinationId().equals(1L)) // Checks if the destination is the depot
                     .count() - 1; // Subtract 1 to exclude the final mandatory return
 
-            // Save the results
-            Double initialTemperature = null;
-            Double coolingRate = null;
-            if (selectedAlgorithm instanceof SimulatedAnnealingAlgorithm) {
-                initialTemperature = ((SimulatedAnnealingAlgorithm) selectedAlgorithm).getInitialTemperature();
-                coolingRate = ((SimulatedAnnealingAlgorithm) selectedAlgorithm).getCoolingRate();
-            } else if (selectedAlgorithm instanceof NearestNeighborSA) {
-                initialTemperature = ((NearestNeighborSA) selectedAlgorithm).getInitialTemperature();
-                coolingRate = ((NearestNeighborSA) selectedAlgorithm).getCoolingRate();
-            }
-
+            // Save the results, annealing algorithms record the schedule they used in the solve context
             AlgorithmResult result = new AlgorithmResult(
-                    algorithm, addressList.size(), vehicleCapacity, initialTemperature, coolingRate,
+                    algorithm, addressList.size(), vehicleCapacity, context.getInitialTemperature(), context.getCoolingRate(),
                     totalTime, totalDistance, executionTime, 0, returnsToDepot
             );
 
@@ -115,6 +170,23 @@ public class RoutingServiceImp {
         }
     }
 
+    public boolean isKnownAlgorithm(String algorithm) {
+        return routingAlgorithms.containsKey(algorithm);
+    }
+
+    private List<RouteLeg> solve(RoutingAlgorithm algorithm, Address depot, List<Address> addresses, long vehicleCapacity, CostMode costMode,
+                                 SolveContext context) {
+        if (costMode == CostMode.SURROGATE) {
+            return twoPhaseSolver.solveOnSurrogate(algorithm, depot, addresses, vehicleCapacity, context);
+        } else if (costMode == CostMode.HYBRID) {
+            // Search on estimates, then pay only for the edges of the winning route and its polish neighbourhood
+            List<RouteLeg> route = twoPhaseSolver.solve(algorithm, depot, addresses, vehicleCapacity, googleCosts, context);
+            context.complete(route);
+            return route;
+        }
+        return context.solve(algorithm, algorithm.buildDistanceMatrix(depot, addresses), vehicleCapacity);
+    }
+
 
     // TEST FUNCTIONS
     public RouteCalculationResult calculateRouteTest(String algorithmType, int addressLimit, Long vehicleCapacity) {
@@ -131,8 +203,10 @@ public class RoutingServiceImp {
         // Fetch the addresses based on the provided limit
         List<Address> addresses = addressService.findAllAddresses(addressLimit + 1);
 
-        // Execute the routing algorithm
-        List<RouteLeg> route = selectedAlgorithm.calculateRoute(addresses, vehicleCapacity);
+        // Execute the routing algorithm, the solve context collects the schedule of annealing algorithms
+        SolveContext context = new SolveContext();
+        Address depot = findDepot(addresses);
+        List<RouteLeg> route = context.solve(selectedAlgorithm, selectedAlgorithm.buildDistanceMatrix(depot, addresses), vehicleCapacity);
 
         long endTime = System.currentTimeMillis();
         long executionTime = endTime - startTime; // execution time in milliseconds
@@ -151,24 +225,12 @@ public class RoutingServiceImp {
         long memoryAfter = MemoryUsageUtil.getUsedMemory();
         long memoryUsed = memoryAfter - memoryBefore;
 
-        // Save the results
-        Double initialTemperature = null;
-        Double coolingRate = null;
-        if (selectedAlgorithm instanceof SimulatedAnnealingAlgorithmTest) {
-            initialTemperature = ((SimulatedAnnealingAlgorithmTest) selectedAlgorithm).getInitialTemperature();
-            coolingRate = ((SimulatedAnnealingAlgorithmTest) selectedAlgorithm).getCoolingRate();
-        }
-        else if (selectedAlgorithm instanceof NearestNeighborSATest) {
-            initialTemperature = ((NearestNeighborSATest) selectedAlgorithm).getInitialTemperature();
-            coolingRate = ((NearestNeighborSATest) selectedAlgorithm).getCoolingRate();
-        }
-
         // Remove "Test" suffix from algorithmType if it exists
         String cleanedAlgorithmType = algorithmType.replaceAll("Test$", "");
 
         // Save the results
         AlgorithmResult result = new AlgorithmResult(
-                cleanedAlgorithmType, addressLimit, vehicleCapacity, initialTemperature, coolingRate,
+                cleanedAlgorithmType, addressLimit, vehicleCapacity, context.getInitialTemperature(), context.getCoolingRate(),
                 totalTime, totalDistance, executionTime, memoryUsed, returnsToDepot
         );
 
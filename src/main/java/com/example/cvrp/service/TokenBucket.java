@@ -0,0 +1,37 @@
+package com.example.cvrp.service;
+
+/**
+ * Token bucket rate limiter that never blocks. reserve() takes the tokens right away, letting the balance go
+ * negative, and returns how long the caller has to wait before using them. Callers therefore queue up behind each
+ * other at the refill rate instead of all retrying at once.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param tokensPerSecond sustained rate
+     * @param capacity        tokens that can be spent at once after an idle period
+     */
+    public TokenBucket(double tokensPerSecond, double capacity) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Token rate must be positive: " + tokensPerSecond);
+        }
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000.0;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    // Takes the tokens and returns the nanoseconds until they are actually available, 0 if they are now
+    public synchronized long reserve(double count) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        tokens -= count;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.dto.TimeDistance;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of travel time / distance between two coordinates, shared by every routing algorithm.
+ * Coordinates are quantised to 1e-6 degrees so the key does not depend on how a double is formatted.
+ * The cache is split into lock-striped LRU segments, each holding at most maxEntries / segments pairs,
+ * so memory stays capped and concurrent solves only contend when they hit the same segment.
+ */
+@Component
+public class TravelCostCache {
+
+    private static final double COORDINATE_SCALE = 1_000_000.0;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TravelCostCache(@Value("${travel-cost-cache.max-entries:500000}") int maxEntries,
+                           @Value("${travel-cost-cache.segments:16}") int segmentCount) {
+        int count = Math.max(1, segmentCount);
+        int capacity = Math.max(1, maxEntries / count);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    public TimeDistance get(Address from, Address to) {
+        Cost cost = lookup(new PairKey(pack(from), pack(to)));
+        return cost != null ? new TimeDistance(cost.time, cost.distance) : null;
+    }
+
+    public void put(Address from, Address to, double time, double distance) {
+        store(new PairKey(pack(from), pack(to)), new Cost(time, distance));
+    }
+
+    /**
+     * Copies every cached pair into the unknown off-diagonal entries of the matrix.
+     *
+     * @return the number of entries served from the cache
+     */
+    public int fill(DistanceMatrix matrix) {
+        int size = matrix.size();
+        long[] locations = pack(matrix);
+        int filled = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i != j && !matrix.isKnown(i, j)) {
+                    Cost cost = lookup(new PairKey(locations[i], locations[j]));
+                    if (cost != null) {
+                        matrix.set(i, j, cost.time, cost.distance);
+                        filled++;
+                    }
+                }
+            }
+        }
+        return filled;
+    }
+
+    // Stores every known off-diagonal entry, failed lookups (Double.MAX_VALUE) and estimates are not cached
+    public void putAll(DistanceMatrix matrix) {
+        int size = matrix.size();
+        long[] locations = pack(matrix);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (isCacheable(matrix, i, j)) {
+                    store(new PairKey(locations[i], locations[j]), new Cost(matrix.getTime(i, j), matrix.getDistance(i, j)));
+                }
+            }
+        }
+    }
+
+    // Like fill(matrix), but only for the entries origins[k] -> destinations[k]
+    public int fill(DistanceMatrix matrix, int[] origins, int[] destinations) {
+        int filled = 0;
+        for (int k = 0; k < origins.length; k++) {
+            int i = origins[k];
+            int j = destinations[k];
+            if (i != j && !matrix.isKnown(i, j)) {
+                Cost cost = lookup(new PairKey(pack(matrix.getAddress(i)), pack(matrix.getAddress(j))));
+                if (cost != null) {
+                    matrix.set(i, j, cost.time, cost.distance);
+                    filled++;
+                }
+            }
+        }
+        return filled;
+    }
+
+    // Like putAll(matrix), but only for the entries origins[k] -> destinations[k]
+    public void putAll(DistanceMatrix matrix, int[] origins, int[] destinations) {
+        for (int k = 0; k < origins.length; k++) {
+            int i = origins[k];
+            int j = destinations[k];
+            if (isCacheable(matrix, i, j)) {
+                store(new PairKey(pack(matrix.getAddress(i)), pack(matrix.getAddress(j))), new Cost(matrix.getTime(i, j), matrix.getDistance(i, j)));
+            }
+        }
+    }
+
+    private static boolean isCacheable(DistanceMatrix matrix, int i, int j) {
+        return i != j && matrix.isKnown(i, j) && !matrix.isEstimated(i, j) && matrix.getTime(i, j) != Double.MAX_VALUE;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Cost lookup(PairKey key) {
+        Segment segment = segmentFor(key);
+        Cost cost;
+        synchronized (segment) {
+            cost = segment.get(key);
+        }
+        if (cost != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cost;
+    }
+
+    private void store(PairKey key, Cost cost) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, cost);
+        }
+    }
+
+    private Segment segmentFor(PairKey key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    private long[] pack(DistanceMatrix matrix) {
+        long[] locations = new long[matrix.size()];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = pack(matrix.getAddress(i));
+        }
+        return locations;
+    }
+
+    // Quantised latitude in the upper 32 bits, quantised longitude in the lower 32 bits
+    private static long pack(Address address) {
+        long latitude = Math.round(address.getLatitude() * COORDINATE_SCALE);
+        long longitude = Math.round(address.getLongitude() * COORDINATE_SCALE);
+        return (latitude << 32) | (longitude & 0xFFFFFFFFL);
+    }
+
+    private record PairKey(long from, long to) {
+    }
+
+    private record Cost(double time, double distance) {
+    }
+
+    // Access-ordered map that drops its least recently used pair once it is full
+    private final class Segment extends LinkedHashMap<PairKey, Cost> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PairKey, Cost> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.cvrp.service;
+
+import com.example.cvrp.algorithms.LocalSearch;
+import com.example.cvrp.algorithms.RoutePlan;
+import com.example.cvrp.algorithms.RoutingAlgorithm;
+import com.example.cvrp.algorithms.SolveContext;
+import com.example.cvrp.dto.RouteLeg;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Solves on great-circle estimates first and pays for real travel costs only where the answer needs them.
+ * Phase one runs the algorithm on a surrogate matrix, which costs no lookups at all. Phase two fetches the real
+ * time and distance of the O(n) edges of the winning route. With polishing enabled it also fetches, inside every
+ * trip, the edges between each stop and its nearest trip-mates in both directions, and runs a local search on
+ * the real costs that only uses those edges. The real costs come from the cost provider the caller passes in.
+ * Phase one runs under the solve context, so best-so-far routes reported during the search carry estimated costs.
+ */
+@Component
+public class TwoPhaseSolver {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoPhaseSolver.class);
+
+    private final GeometricCostProvider geometricCostProvider;
+    private final int polishNeighbors;
+
+    /**
+     * @param polishNeighbors nearest trip-mates per stop whose real edges are fetched for the polish, 0 disables it
+     */
+    public TwoPhaseSolver(GeometricCostProvider geometricCostProvider,
+                          @Value("${routing.two-phase.polish-neighbors:5}") int polishNeighbors) {
+        this.geometricCostProvider = geometricCostProvider;
+        this.polishNeighbors = polishNeighbors;
+    }
+
+    // Phase one only, the route is returned with estimated times and distances
+    public List<RouteLeg> solveOnSurrogate(RoutingAlgorithm algorithm, Address depot, List<Address> addresses, long vehicleCapacity,
+                                           SolveContext context) {
+        return context.solve(algorithm, surrogateMatrix(depot, addresses), vehicleCapacity);
+    }
+
+    public List<RouteLeg> solve(RoutingAlgorithm algorithm, Address depot, List<Address> addresses, long vehicleCapacity,
+                                CostProvider costProvider, SolveContext context) {
+        DistanceMatrix surrogate = surrogateMatrix(depot, addresses);
+        RoutePlan plan = RoutePlan.fromRouteLegs(surrogate, context.solve(algorithm, surrogate, vehicleCapacity));
+
+        // Phase two: real costs for the route's own edges, plus the polish neighbourhood
+        EdgeList edges = new EdgeList();
+        for (int trip = 0; trip < plan.getTripCount(); trip++) {
+            addRouteEdges(edges, plan.getStops(trip));
+            if (polishNeighbors > 0) {
+                addNeighborEdges(edges, surrogate, plan.getStops(trip));
+            }
+        }
+        int[] origins = edges.origins();
+        int[] destinations = edges.destinations();
+
+        DistanceMatrix exact = new DistanceMatrix(depot, addresses);
+        int requests = costProvider.fillEntries(exact, origins, destinations);
+        log.info("Two-phase solve priced {} of {} pairs with {} requests",
+                origins.length, (long) exact.size() * (exact.size() - 1), requests);
+
+        if (polishNeighbors > 0) {
+            int moves = new LocalSearch(exact, vehicleCapacity, polishNeighbors).improve(plan);
+            log.info("Two-phase polish applied {} moves on real costs", moves);
+        }
+        return plan.toRouteLegs(exact);
+    }
+
+    private DistanceMatrix surrogateMatrix(Address depot, List<Address> addresses) {
+        DistanceMatrix surrogate = new DistanceMatrix(depot, addresses);
+        geometricCostProvider.fillDistanceMatrix(surrogate);
+        return surrogate;
+    }
+
+    // Every leg of the trip, and with polishing its reverse too, which 2-opt needs on asymmetric costs
+    private void addRouteEdges(EdgeList edges, int[] stops) {
+        int from = 0;
+        for (int stop : stops) {
+            edges.add(from, stop);
+            if (polishNeighbors > 0) {
+                edges.add(stop, from);
+            }
+            from = stop;
+        }
+        edges.add(from, 0);
+        if (polishNeighbors > 0) {
+            edges.add(0, from);
+        }
+    }
+
+    // Both directions between every stop (and the depot) and its nearest trip-mates by estimated time
+    private void addNeighborEdges(EdgeList edges, DistanceMatrix surrogate, int[] stops) {
+        int[] nodes = new int[stops.length + 1];
+        System.arraycopy(stops, 0, nodes, 1, stops.length);
+
+        Integer[] candidates = new Integer[nodes.length - 1];
+        for (int node : nodes) {
+            int count = 0;
+            for (int other : nodes) {
+                if (other != node) {
+                    candidates[count++] = other;
+                }
+            }
+            Arrays.sort(candidates, 0, count, (a, b) -> Double.compare(surrogate.getTime(node, a), surrogate.getTime(node, b)));
+            for (int k = 0; k < Math.min(polishNeighbors, count); k++) {
+                edges.add(node, candidates[k]);
+                edges.add(candidates[k], node);
+            }
+        }
+    }
+
+    // Distinct origin/destination pairs in the order they were added
+    private static final class EdgeList {
+        private final List<int[]> pairs = new ArrayList<>();
+        private final Set<Long> seen = new HashSet<>();
+
+        void add(int origin, int destination) {
+            if (origin != destination && seen.add(((long) origin << 32) | destination)) {
+                pairs.add(new int[]{origin, destination});
+            }
+        }
+
+        int[] origins() {
+            return pairs.stream().mapToInt(pair -> pair[0]).toArray();
+        }
+
+        int[] destinations() {
+            return pairs.stream().mapToInt(pair -> pair[1]).toArray();
+        }
+    }
+}
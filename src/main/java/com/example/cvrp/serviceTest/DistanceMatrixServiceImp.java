@@ -2,22 +2,38 @@ package com.example.cvrp.serviceTest;
 
 import com.example.cvrp.model.Address;
 import com.example.cvrp.dto.TimeDistance;
+import com.example.cvrp.model.DistanceMatrix;
 import com.example.cvrp.model.TimeDistanceEntity;
 import com.example.cvrp.repository.TimeDistanceRepository;
 import com.example.cvrp.service.GoogleMapsServiceImp;
+import com.example.cvrp.service.CostProvider;
 import com.example.cvrp.util.TimeDistanceConverter;
+import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // Testing purposes
 
 @Service
-public class DistanceMatrixServiceImp {
+public class DistanceMatrixServiceImp implements CostProvider {
     private final GoogleMapsServiceImp googleMapsService;
     private final TimeDistanceRepository timeDistanceRepository;
-    private int googleMapsRequestCount = 0; // Counter for Google Maps API requests
+    private final AtomicInteger googleMapsRequestCount = new AtomicInteger(); // Counter for Google Maps API requests, shared by concurrent runs
+
+    // Upper bound for the number of locations in one IN list
+    private static final int LOCATIONS_PER_QUERY = 500;
 
     public DistanceMatrixServiceImp(GoogleMapsServiceImp googleMapsService, TimeDistanceRepository timeDistanceRepository) {
         this.googleMapsService = googleMapsService;
@@ -37,7 +53,7 @@ public class DistanceMatrixServiceImp {
         /*
         // Fetch from Google Maps API if not in database
         GoogleMapsResponse response = googleMapsService.getDistanceMatrix(origin, destination);
-        googleMapsRequestCount++; // Increment the counter
+        googleMapsRequestCount.incrementAndGet(); // Increment the counter
 
         if (response != null && !response.getRows().isEmpty() && !response.getRows().get(0).getElements().isEmpty()) {
             double time = response.getRows().get(0).getElements().get(0).getDuration().getValue();
@@ -52,49 +68,144 @@ public class DistanceMatrixServiceImp {
             throw new RuntimeException("Failed to get distance and time from Google Maps API");
         }*/
     }
+
+    public TimeDistance getDistanceAndTime(Long originId, Long destinationId) {
+        return timeDistanceRepository.findByOriginIdAndDestinationId(originId, destinationId)
+                .map(TimeDistanceConverter::toDto)
+                .orElseThrow(() -> new RuntimeException("Origin ID: " + originId + ", Destination ID: " + destinationId + " doesn't exist in database"));
+    }
+
+    // Loads every stored pair among the addresses with a few IN-list queries instead of one query per pair.
+    // The database is the only source, so a pair that is not stored fails the fill and nothing is requested remotely
+    @Override
+    @Transactional
+    public int fillDistanceMatrix(DistanceMatrix matrix) {
+        if (!hasUnknownEntry(matrix)) {
+            return 0;
+        }
+
+        // Pairs keyed by address id go through the unique (origin_id, destination_id) index
+        Map<Long, Integer> positionById = new HashMap<>();
+        for (int i = 0; i < matrix.size(); i++) {
+            if (matrix.getAddress(i).getId() != null) {
+                positionById.put(matrix.getAddress(i).getId(), i);
+            }
+        }
+        forEachCachedPairById(new ArrayList<>(positionById.keySet()), entity -> {
+            Integer i = positionById.get(entity.getOriginId());
+            Integer j = positionById.get(entity.getDestinationId());
+            if (i != null && j != null && !i.equals(j)) {
+                matrix.set(i, j, entity.getTime(), entity.getDistance());
+            }
+        });
+
+        if (hasUnknownEntry(matrix)) {
+            loadLegacyPairs(matrix);
+        }
+
+        for (int i = 0; i < matrix.size(); i++) {
+            for (int j = 0; j < matrix.size(); j++) {
+                if (!matrix.isKnown(i, j)) {
+                    throw new RuntimeException("Origin: " + toLocation(matrix.getAddress(i)) + ", Destination: "
+                            + toLocation(matrix.getAddress(j)) + " doesn't exist in database");
+                }
+            }
+        }
+        return 0;
+    }
+
+    // Rows the key migration could not resolve are still matched on their "lat,lng" strings
+    private void loadLegacyPairs(DistanceMatrix matrix) {
+        // Several addresses may share the same coordinates, so a location maps to all of its positions
+        Map<String, List<Integer>> positionsByLocation = new LinkedHashMap<>();
+        for (int i = 0; i < matrix.size(); i++) {
+            positionsByLocation.computeIfAbsent(toLocation(matrix.getAddress(i)), key -> new ArrayList<>()).add(i);
+        }
+
+        forEachCachedPair(new ArrayList<>(positionsByLocation.keySet()), entity -> {
+            List<Integer> origins = positionsByLocation.get(entity.getOrigin());
+            List<Integer> destinations = positionsByLocation.get(entity.getDestination());
+            for (int i : origins) {
+                for (int j : destinations) {
+                    if (i != j && !matrix.isKnown(i, j)) {
+                        matrix.set(i, j, entity.getTime(), entity.getDistance());
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean hasUnknownEntry(DistanceMatrix matrix) {
+        for (int i = 0; i < matrix.size(); i++) {
+            for (int j = 0; j < matrix.size(); j++) {
+                if (!matrix.isKnown(i, j)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     //ADDED FOR TESTING
+    @Transactional
     public void fetchAndSaveAllTimeDistances(List<Address> addresses) {
+        // Load the keys of every pair that is already stored, instead of checking each pair separately
+        List<String> locations = addresses.stream().map(this::toLocation).distinct().collect(Collectors.toList());
+        Set<String> existingPairs = new HashSet<>();
+        forEachCachedPair(locations, entity -> existingPairs.add(entity.getOrigin() + "->" + entity.getDestination()));
+
         for (int i = 0; i < addresses.size(); i++) {
             for (int j = i + 1; j < addresses.size(); j++) {
                 Address from = addresses.get(i);
                 Address to = addresses.get(j);
                 if (!from.equals(to)) { // Ensure from and to addresses are different
-                    String origin = from.getLatitude() + "," + from.getLongitude();
-                    String destination = to.getLatitude() + "," + to.getLongitude();
+                    String origin = toLocation(from);
+                    String destination = toLocation(to);
 
                     // Check if data exists in the database
-                    Optional<TimeDistanceEntity> existingEntry = timeDistanceRepository.findByOriginAndDestination(origin, destination);
-                    if (existingEntry.isEmpty()) {
+                    if (!existingPairs.contains(origin + "->" + destination)) {
                         // Fetch from Google Maps API if not in database and save it
                         getDistanceAndTime(origin, destination);
+                        existingPairs.add(origin + "->" + destination);
                     }
                 }
             }
         }
-        System.out.println("First step completed. Google Maps API requests count: " + googleMapsRequestCount);
-        for (int i = addresses.size() - 1; i >= 0; i--) {
-            for (int j = addresses.size() - 1; j > i; j--) {
-                Address from = addresses.get(i);
-                Address to = addresses.get(j);
-                if (!from.equals(to)) { // Ensure from and to addresses are different
-                    String origin = from.getLatitude() + "," + from.getLongitude();
-                    String destination = to.getLatitude() + "," + to.getLongitude();
+        // Print the Google Maps API request count
+        System.out.println("Completed. Google Maps API requests count: " + googleMapsRequestCount.getAndSet(0));
+    }
 
-                    // Check if data exists in the database
-                    Optional<TimeDistanceEntity> existingEntry = timeDistanceRepository.findByOriginAndDestination(origin, destination);
-                    if (existingEntry.isEmpty()) {
-                        // Fetch from Google Maps API if not in database and save it
-                        getDistanceAndTime(origin, destination);
-                    }
+    // Streams every stored pair whose origin and destination are both among the locations
+    private void forEachCachedPair(List<String> locations, Consumer<TimeDistanceEntity> action) {
+        for (int originStart = 0; originStart < locations.size(); originStart += LOCATIONS_PER_QUERY) {
+            List<String> origins = locations.subList(originStart, Math.min(locations.size(), originStart + LOCATIONS_PER_QUERY));
+            for (int destinationStart = 0; destinationStart < locations.size(); destinationStart += LOCATIONS_PER_QUERY) {
+                List<String> destinations = locations.subList(destinationStart, Math.min(locations.size(), destinationStart + LOCATIONS_PER_QUERY));
+                try (Stream<TimeDistanceEntity> pairs = timeDistanceRepository.streamByOriginInAndDestinationIn(origins, destinations)) {
+                    pairs.forEach(action);
                 }
             }
         }
-        // Print the Google Maps API request count
-        System.out.println("Completed. Google Maps API requests count: " + googleMapsRequestCount);
-        googleMapsRequestCount = 0;
+    }
+
+    // Streams every stored pair whose origin and destination ids are both among the given ids
+    private void forEachCachedPairById(List<Long> ids, Consumer<TimeDistanceEntity> action) {
+        for (int originStart = 0; originStart < ids.size(); originStart += LOCATIONS_PER_QUERY) {
+            List<Long> origins = ids.subList(originStart, Math.min(ids.size(), originStart + LOCATIONS_PER_QUERY));
+            for (int destinationStart = 0; destinationStart < ids.size(); destinationStart += LOCATIONS_PER_QUERY) {
+                List<Long> destinations = ids.subList(destinationStart, Math.min(ids.size(), destinationStart + LOCATIONS_PER_QUERY));
+                try (Stream<TimeDistanceEntity> pairs = timeDistanceRepository.streamByOriginIdInAndDestinationIdIn(origins, destinations)) {
+                    pairs.forEach(action);
+                }
+            }
+        }
+    }
+
+    private String toLocation(Address address) {
+        return address.getLatitude() + "," + address.getLongitude();
     }
 
     public int getGoogleMapsRequestCount() {
-        return googleMapsRequestCount;
+        return googleMapsRequestCount.get();
     }
 }
@@ -0,0 +1,274 @@
+package com.example.cvrp.serviceTest;
+
+import com.example.cvrp.dto.TimeDistance;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.GoogleMapsResponse;
+import com.example.cvrp.service.GeometricCostProvider;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the Distance Matrix API, for load tests that must not depend on maps.googleapis.com.
+ * It answers GET /maps/api/distancematrix/json in the same JSON shape as the real API, with times and distances
+ * computed from the coordinates by the geometric cost provider. Point google.maps.base-url at getBaseUrl() to use it.
+ * <p>
+ * Provider behaviour is injected per request: a log-normal latency given by its median and 99th percentile plus
+ * a cost per element, a share of HTTP 503 errors, a share of OVER_QUERY_LIMIT answers, and the real API's limits
+ * on elements and locations per request. Responses are delayed on a scheduler, so slow answers do not hold a thread.
+ * <p>
+ * With google.maps.stub.enabled it starts with the application, otherwise it can be created and started by hand.
+ */
+@Component
+public class DistanceMatrixStubServer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DistanceMatrixStubServer.class);
+
+    private static final String PATH = "/maps/api/distancematrix/json";
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final GeometricCostProvider geometricCostProvider;
+    private final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final boolean enabled;
+    private final int port;
+    private final double latencyMu;
+    private final double latencySigma;
+    private final double latencyPerElementMillis;
+    private final double errorRate;
+    private final double overQueryLimitRate;
+    private final int maxElementsPerRequest;
+    private final int maxLocationsPerSide;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder elements = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private HttpServer server;
+    private ScheduledExecutorService responseScheduler;
+
+    /**
+     * @param port                    port to listen on, 0 for any free port
+     * @param latencyMedianMillis     median latency of a request
+     * @param latencyP99Millis        99th percentile latency of a request, at or below the median for a fixed latency
+     * @param latencyPerElementMillis latency added per element of the request
+     * @param errorRate               share of requests answered with HTTP 503
+     * @param overQueryLimitRate      share of requests answered with status OVER_QUERY_LIMIT
+     * @param maxElementsPerRequest   larger requests are answered with MAX_ELEMENTS_EXCEEDED
+     * @param maxLocationsPerSide     requests with more origins or destinations are answered with MAX_DIMENSIONS_EXCEEDED
+     */
+    public DistanceMatrixStubServer(GeometricCostProvider geometricCostProvider,
+                                    @Value("${google.maps.stub.enabled:false}") boolean enabled,
+                                    @Value("${google.maps.stub.port:8089}") int port,
+                                    @Value("${google.maps.stub.latency-median-ms:80}") double latencyMedianMillis,
+                                    @Value("${google.maps.stub.latency-p99-ms:400}") double latencyP99Millis,
+                                    @Value("${google.maps.stub.latency-per-element-ms:0.5}") double latencyPerElementMillis,
+                                    @Value("${google.maps.stub.error-rate:0.0}") double errorRate,
+                                    @Value("${google.maps.stub.over-query-limit-rate:0.0}") double overQueryLimitRate,
+                                    @Value("${google.maps.stub.max-elements-per-request:100}") int maxElementsPerRequest,
+                                    @Value("${google.maps.stub.max-locations-per-side:25}") int maxLocationsPerSide) {
+        this.geometricCostProvider = geometricCostProvider;
+        this.enabled = enabled;
+        this.port = port;
+        this.latencyMu = Math.log(Math.max(0.001, latencyMedianMillis));
+        this.latencySigma = latencyP99Millis > latencyMedianMillis ? Math.log(latencyP99Millis / latencyMedianMillis) / Z_99 : 0;
+        this.latencyPerElementMillis = latencyPerElementMillis;
+        this.errorRate = errorRate;
+        this.overQueryLimitRate = overQueryLimitRate;
+        this.maxElementsPerRequest = maxElementsPerRequest;
+        this.maxLocationsPerSide = maxLocationsPerSide;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (enabled) {
+            start();
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        responseScheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "distance-matrix-stub-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(responseScheduler);
+        server.start();
+        log.info("Distance Matrix stub listening on {}", getBaseUrl());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        responseScheduler.shutdownNow();
+        server = null;
+        log.info("Distance Matrix stub stopped after {} requests, {} elements, {} injected failures",
+                getRequestCount(), getElementCount(), getFailureCount());
+    }
+
+    // Value for google.maps.base-url
+    public synchronized String getBaseUrl() {
+        if (server == null) {
+            throw new IllegalStateException("Distance Matrix stub is not running");
+        }
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getElementCount() {
+        return elements.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    private void handle(HttpExchange exchange) {
+        requests.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            List<Address> origins = parseLocations(queryParam(exchange, "origins"));
+            List<Address> destinations = parseLocations(queryParam(exchange, "destinations"));
+            int elementCount = origins.size() * destinations.size();
+            long latency = Math.round(Math.exp(latencyMu + latencySigma * random.nextGaussian()) + latencyPerElementMillis * elementCount);
+
+            int statusCode = 200;
+            GoogleMapsResponse response = new GoogleMapsResponse();
+            // One draw for both injected failures, so each is answered at its configured rate
+            double failureDraw = random.nextDouble();
+            if (failureDraw < errorRate) {
+                failures.increment();
+                statusCode = 503;
+                response = null;
+            } else if (failureDraw < errorRate + overQueryLimitRate) {
+                failures.increment();
+                response.setStatus("OVER_QUERY_LIMIT");
+            } else if (origins.isEmpty() || destinations.isEmpty()) {
+                response.setStatus("INVALID_REQUEST");
+            } else if (origins.size() > maxLocationsPerSide || destinations.size() > maxLocationsPerSide) {
+                response.setStatus("MAX_DIMENSIONS_EXCEEDED");
+            } else if (elementCount > maxElementsPerRequest) {
+                response.setStatus("MAX_ELEMENTS_EXCEEDED");
+            } else {
+                elements.add(elementCount);
+                response.setStatus("OK");
+                response.setRows(buildRows(origins, destinations));
+            }
+
+            byte[] body = response != null ? objectMapper.writeValueAsBytes(response) : new byte[0];
+            int code = statusCode;
+            responseScheduler.schedule(() -> respond(exchange, code, body), latency, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException | IOException e) {
+            log.warn("Distance Matrix stub could not answer {}: {}", exchange.getRequestURI(), e.getMessage());
+            respond(exchange, 400, new byte[0]);
+        }
+    }
+
+    private List<GoogleMapsResponse.Row> buildRows(List<Address> origins, List<Address> destinations) {
+        List<GoogleMapsResponse.Row> rows = new ArrayList<>(origins.size());
+        for (Address origin : origins) {
+            List<GoogleMapsResponse.Element> row = new ArrayList<>(destinations.size());
+            for (Address destination : destinations) {
+                TimeDistance estimate = geometricCostProvider.estimate(origin, destination);
+                GoogleMapsResponse.Duration duration = new GoogleMapsResponse.Duration();
+                duration.setValue((double) Math.round(estimate.getTime()));
+                duration.setText(Math.round(estimate.getTime() / 60) + " mins");
+                GoogleMapsResponse.Distance distance = new GoogleMapsResponse.Distance();
+                distance.setValue((double) Math.round(estimate.getDistance()));
+                distance.setText(String.format("%.1f km", estimate.getDistance() / 1000));
+
+                GoogleMapsResponse.Element element = new GoogleMapsResponse.Element();
+                element.setStatus("OK");
+                element.setDuration(duration);
+                element.setDistance(distance);
+                row.add(element);
+            }
+            GoogleMapsResponse.Row responseRow = new GoogleMapsResponse.Row();
+            responseRow.setElements(row);
+            rows.add(responseRow);
+        }
+        return rows;
+    }
+
+    private void respond(HttpExchange exchange, int statusCode, byte[] body) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(statusCode, body.length > 0 ? body.length : -1);
+            if (body.length > 0) {
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+        } catch (IOException e) {
+            // The client has gone away, e.g. after its request timeout
+            log.debug("Distance Matrix stub response was not delivered: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return "";
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0 && parameter.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    // "lat,lng|lat,lng|..." as it is sent by GoogleMapsServiceImp
+    private static List<Address> parseLocations(String locations) {
+        List<Address> addresses = new ArrayList<>();
+        if (locations.isEmpty()) {
+            return addresses;
+        }
+        for (String location : locations.split("\\|")) {
+            String[] coordinates = location.split(",");
+            Address address = new Address();
+            address.setLatitude(Double.parseDouble(coordinates[0].trim()));
+            address.setLongitude(Double.parseDouble(coordinates[1].trim()));
+            addresses.add(address);
+        }
+        return addresses;
+    }
+}
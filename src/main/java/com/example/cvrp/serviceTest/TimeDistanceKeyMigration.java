@@ -0,0 +1,151 @@
+package com.example.cvrp.serviceTest;
+
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.TimeDistanceEntity;
+import com.example.cvrp.repository.AddressRepository;
+import com.example.cvrp.repository.TimeDistanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Backfills origin_id / destination_id on TimeDistanceEntity rows that were stored with "lat,lng" keys only.
+ * A location is resolved when exactly one address has those coordinates; rows for unknown or shared
+ * coordinates are left as they are and stay reachable through the legacy string columns.
+ * Rows that resolve to a pair that is already keyed are duplicates and are removed.
+ * The migration rewrites and deletes rows, so it only runs when time-distance.key-migration.enabled is set.
+ * Each page is migrated in its own transaction, so a failure leaves every page either done or untouched and
+ * a rerun picks up where it stopped.
+ */
+@Component
+public class TimeDistanceKeyMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeDistanceKeyMigration.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final TimeDistanceRepository timeDistanceRepository;
+    private final AddressRepository addressRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public TimeDistanceKeyMigration(TimeDistanceRepository timeDistanceRepository, AddressRepository addressRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${time-distance.key-migration.enabled:false}") boolean enabled) {
+        this.timeDistanceRepository = timeDistanceRepository;
+        this.addressRepository = addressRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            migrate();
+        }
+    }
+
+    public void migrate() {
+        Map<String, Long> idByLocation = new HashMap<>();
+        Set<String> sharedLocations = new HashSet<>();
+        for (Address address : addressRepository.findAll()) {
+            String location = address.getLatitude() + "," + address.getLongitude();
+            if (idByLocation.putIfAbsent(location, address.getId()) != null) {
+                sharedLocations.add(location);
+            }
+        }
+        sharedLocations.forEach(idByLocation::remove);
+
+        int keyed = 0;
+        int removed = 0;
+        int unresolved = 0;
+        long lastId = 0L;
+        PageResult page;
+        do {
+            long afterId = lastId;
+            page = transactionTemplate.execute(status -> migratePage(afterId, idByLocation));
+            keyed += page.keyed();
+            removed += page.removed();
+            unresolved += page.unresolved();
+            lastId = page.lastId();
+        } while (page.size() == PAGE_SIZE);
+
+        if (keyed + removed + unresolved > 0) {
+            log.info("TimeDistance key migration: {} rows keyed by address id, {} duplicates removed, {} left on legacy keys",
+                    keyed, removed, unresolved);
+        }
+    }
+
+    // Runs inside the page's transaction
+    private PageResult migratePage(long afterId, Map<String, Long> idByLocation) {
+        List<TimeDistanceEntity> page = timeDistanceRepository.findByOriginIdIsNullAndIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, PAGE_SIZE));
+        long lastId = afterId;
+        int unresolved = 0;
+
+        // Resolve the page first, then find the pairs that are already keyed with one query.
+        // Entities are not touched before the query, so the flush it triggers cannot write a duplicate key.
+        List<TimeDistanceEntity> resolved = new ArrayList<>();
+        List<Long> resolvedOriginIds = new ArrayList<>();
+        List<Long> resolvedDestinationIds = new ArrayList<>();
+        Set<Long> originIds = new HashSet<>();
+        Set<Long> destinationIds = new HashSet<>();
+        for (TimeDistanceEntity entity : page) {
+            lastId = entity.getId();
+            Long originId = idByLocation.get(entity.getOrigin());
+            Long destinationId = idByLocation.get(entity.getDestination());
+            if (originId == null || destinationId == null) {
+                unresolved++;
+                continue;
+            }
+            resolved.add(entity);
+            resolvedOriginIds.add(originId);
+            resolvedDestinationIds.add(destinationId);
+            originIds.add(originId);
+            destinationIds.add(destinationId);
+        }
+
+        Set<String> keyedPairs = new HashSet<>();
+        if (!resolved.isEmpty()) {
+            try (Stream<TimeDistanceEntity> existing = timeDistanceRepository.streamByOriginIdInAndDestinationIdIn(originIds, destinationIds)) {
+                keyedPairs = existing.map(entity -> entity.getOriginId() + "->" + entity.getDestinationId()).collect(Collectors.toCollection(HashSet::new));
+            }
+        }
+
+        List<TimeDistanceEntity> updated = new ArrayList<>();
+        List<TimeDistanceEntity> duplicates = new ArrayList<>();
+        for (int i = 0; i < resolved.size(); i++) {
+            TimeDistanceEntity entity = resolved.get(i);
+            Long originId = resolvedOriginIds.get(i);
+            Long destinationId = resolvedDestinationIds.get(i);
+            if (keyedPairs.add(originId + "->" + destinationId)) {
+                entity.setOriginId(originId);
+                entity.setDestinationId(destinationId);
+                updated.add(entity);
+            } else {
+                duplicates.add(entity);
+            }
+        }
+
+        timeDistanceRepository.saveAll(updated);
+        timeDistanceRepository.deleteAllInBatch(duplicates);
+        return new PageResult(updated.size(), duplicates.size(), unresolved, lastId, page.size());
+    }
+
+    private record PageResult(int keyed, int removed, int unresolved, long lastId, int size) {
+    }
+}
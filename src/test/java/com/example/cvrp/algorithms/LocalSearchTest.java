@@ -0,0 +1,86 @@
+package com.example.cvrp.algorithms;
+
+import com.example.cvrp.dto.TimeDistance;
+import com.example.cvrp.model.Address;
+import com.example.cvrp.model.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalSearchTest {
+
+    private static final int CUSTOMERS = 30;
+    private static final int TRIPS = 3;
+    private static final int SPLIT = 1;
+
+    @Test
+    void splitCustomerStaysInItsTrips() {
+        for (long seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            DistanceMatrix matrix = randomMatrix(random);
+            RoutePlan plan = randomPlan(random);
+
+            new LocalSearch(matrix, 1000, LocalSearch.DEFAULT_NEIGHBORS).improve(plan);
+
+            // Every trip still delivers its own part of the split customer's demand, exactly once
+            assertEquals(TRIPS, plan.getTripCount(), "seed " + seed);
+            for (int trip = 0; trip < TRIPS; trip++) {
+                int[] stops = plan.getStops(trip);
+                long[] units = plan.getUnits(trip);
+                int visits = 0;
+                for (int k = 0; k < stops.length; k++) {
+                    if (stops[k] == SPLIT) {
+                        visits++;
+                        assertEquals(trip + 1, units[k], "seed " + seed + ", trip " + trip);
+                    }
+                }
+                assertEquals(1, visits, "seed " + seed + ", trip " + trip);
+            }
+        }
+    }
+
+    private static DistanceMatrix randomMatrix(Random random) {
+        List<Address> addresses = new ArrayList<>();
+        for (int i = 0; i <= CUSTOMERS; i++) {
+            Address address = new Address();
+            address.setId((long) i + 1);
+            address.setLatitude(random.nextDouble() * 100);
+            address.setLongitude(random.nextDouble() * 100);
+            address.setUnit(i == 0 ? 0L : 1L);
+            addresses.add(address);
+        }
+        addresses.get(SPLIT).setUnit((long) TRIPS * (TRIPS + 1) / 2);
+        return DistanceMatrix.build(addresses.get(0), addresses, (a, b) -> {
+            double distance = Math.hypot(a.getLatitude() - b.getLatitude(), a.getLongitude() - b.getLongitude());
+            return new TimeDistance(distance, distance);
+        });
+    }
+
+    // The other customers shuffled into TRIPS trips, trip t also delivers t + 1 units to the split customer
+    private static RoutePlan randomPlan(Random random) {
+        List<Integer> customers = new ArrayList<>();
+        for (int node = SPLIT + 1; node <= CUSTOMERS; node++) {
+            customers.add(node);
+        }
+        Collections.shuffle(customers, random);
+
+        RoutePlan plan = new RoutePlan();
+        int perTrip = customers.size() / TRIPS;
+        for (int trip = 0; trip < TRIPS; trip++) {
+            List<Integer> stops = new ArrayList<>(customers.subList(trip * perTrip, trip == TRIPS - 1 ? customers.size() : (trip + 1) * perTrip));
+            int splitPosition = random.nextInt(stops.size() + 1);
+            stops.add(splitPosition, SPLIT);
+            long[] units = new long[stops.size()];
+            for (int k = 0; k < units.length; k++) {
+                units[k] = k == splitPosition ? trip + 1 : 1;
+            }
+            plan.addTrip(stops.stream().mapToInt(Integer::intValue).toArray(), units);
+        }
+        return plan;
+    }
+}